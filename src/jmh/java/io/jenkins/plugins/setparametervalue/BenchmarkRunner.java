@@ -0,0 +1,30 @@
+package io.jenkins.plugins.setparametervalue;
+
+import org.junit.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs plugin benchmarks with {@code mvn test -P benchmark} and writes results as JSON.
+ * Fork and iteration counts and result file could be changed with benchmark.* system properties.
+ *
+ * @author Andrejus Chaliapinas
+ */
+public class BenchmarkRunner {
+
+  @Test
+  public void runBenchmarks() throws Exception {
+    Options options = new OptionsBuilder()
+        .include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark")
+        .forks(Integer.getInteger("benchmark.forks", 1))
+        .warmupIterations(Integer.getInteger("benchmark.warmupIterations", 3))
+        .measurementIterations(Integer.getInteger("benchmark.iterations", 5))
+        .shouldFailOnError(true)
+        .resultFormat(ResultFormatType.JSON)
+        .result(System.getProperty("benchmark.result", "target/jmh-result.json"))
+        .build();
+    new Runner(options).run();
+  }
+}
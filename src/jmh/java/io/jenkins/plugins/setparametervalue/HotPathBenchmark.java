@@ -0,0 +1,170 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import hudson.XmlFile;
+import hudson.model.ParameterValue;
+import hudson.model.ParametersAction;
+import hudson.model.Run;
+import hudson.model.StringParameterValue;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Benchmarks of request parsing, parameter binding, name validation and merge with save.
+ *
+ * @author Andrejus Chaliapinas
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HotPathBenchmark {
+
+  @Param({"1", "50"})
+  public int parameters;
+
+  private byte[] body;
+  private HttpServletRequest request;
+  private JSONArray parameterArray;
+  private List<Parameter> provided;
+  private List<ParameterValue> overrides;
+  private ParametersAction current;
+  private File buildXml;
+
+  /**
+   * Prepares request body and run's parameters of benchmarked size.
+   * @throws IOException Possible exception on temporary file creation.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws IOException {
+    parameterArray = new JSONArray();
+    provided = new ArrayList<>(parameters);
+    overrides = new ArrayList<>(parameters);
+    List<ParameterValue> defined = new ArrayList<>(parameters);
+    for (int i = 0; i < parameters; i++) {
+      parameterArray.add(new JSONObject().element("_class", StringParameterValue.class.getName())
+          .element("name", "P" + i).element("value", "value" + i));
+      provided.add(new Parameter(StringParameterValue.class.getName(), "P" + i, "value" + i));
+      overrides.add(new StringParameterValue("P" + i, "changed" + i));
+      defined.add(new StringParameterValue("P" + i, "value" + i));
+    }
+    body = new JSONObject().element("job", "folder/job").element("run", "1").element("parameter", parameterArray)
+        .toString().getBytes(StandardCharsets.UTF_8);
+    request = stubRequest(body);
+    current = new ParametersAction(defined);
+    buildXml = Files.createTempFile("build", ".xml").toFile();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(buildXml.toPath());
+  }
+
+  @Benchmark
+  public JSONObject readBody() throws IOException {
+    return RequestBodyReader.readJson(request, RequestBodyReader.maxBodySize);
+  }
+
+  @Benchmark
+  public List<ParameterValue> bindParameters() {
+    return ParameterBinder.toValues(ParameterBinder.bind(parameterArray));
+  }
+
+  @Benchmark
+  public List<String> validateNames() {
+    return ParameterNameIndex.undefined(current, provided);
+  }
+
+  @Benchmark
+  public ParametersAction merge() {
+    ParameterUpdater.countChanged(current, overrides);
+    return ParameterUpdater.merge(current, overrides);
+  }
+
+  /**
+   * Merges and writes result with run's XStream, which is what run save spends its time on.
+   * @return Merged action.
+   * @throws IOException Possible exception on write.
+   */
+  @Benchmark
+  public ParametersAction mergeAndSave() throws IOException {
+    ParametersAction merged = merge();
+    new XmlFile(Run.XSTREAM2, buildXml).write(merged);
+    return merged;
+  }
+
+  private static HttpServletRequest stubRequest(final byte[] body) {
+    return (HttpServletRequest) Proxy.newProxyInstance(HotPathBenchmark.class.getClassLoader(),
+        new Class<?>[] {HttpServletRequest.class}, (proxy, method, args) -> {
+          switch (method.getName()) {
+            case "getContentLength":
+              return body.length;
+            case "getCharacterEncoding":
+              return "UTF-8";
+            case "getInputStream":
+              return new StubInputStream(body);
+            default:
+              throw new UnsupportedOperationException(method.getName());
+          }
+        });
+  }
+
+  /**
+   * Servlet input stream over byte array.
+   */
+  private static final class StubInputStream extends ServletInputStream {
+    private final ByteArrayInputStream in;
+
+    StubInputStream(byte[] body) {
+      in = new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public int read() {
+      return in.read();
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      return in.read(b, off, len);
+    }
+
+    @Override
+    public boolean isFinished() {
+      return in.available() == 0;
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setReadListener(ReadListener readListener) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
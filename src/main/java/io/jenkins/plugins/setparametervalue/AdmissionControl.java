@@ -0,0 +1,152 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jenkins.util.SystemProperties;
+
+/**
+ * Admission control of REST calls: token bucket per user and global caps of calls in progress, separate for
+ * short calls and for long running streaming ones such as bulk and fan-out updates, so the latter can't starve
+ * the former. Checked before request body is read, so rejected call costs neither parsing nor job lookup.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class AdmissionControl {
+
+  /** Sustained number of calls per second allowed for single user, 0 disables rate limiting. */
+  static int rateLimit = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".rateLimit", 0);
+
+  /** Number of calls single user could make at once above sustained rate. */
+  static int rateBurst = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".rateBurst", 20);
+
+  /** Maximum number of short calls in progress across all users, 0 disables the cap. */
+  static int maxConcurrent = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".maxConcurrentRequests", 0);
+
+  /** Maximum number of streaming calls in progress across all users, 0 disables the cap. */
+  static int maxConcurrentStreams = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".maxConcurrentStreams", 0);
+
+  /** Maximum number of remembered user buckets, least recently used ones are forgotten first. */
+  static int maxUsers = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".rateLimitMaxUsers", 10000);
+
+  private static final Map<String, Bucket> BUCKETS = new LinkedHashMap<String, Bucket>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Bucket> eldest) {
+      return size() > maxUsers;
+    }
+  };
+
+  private static final AtomicInteger IN_FLIGHT = new AtomicInteger();
+  private static final AtomicInteger STREAMS_IN_FLIGHT = new AtomicInteger();
+
+  private static final AtomicLong ADMITTED = new AtomicLong();
+  private static final AtomicLong RATE_LIMITED = new AtomicLong();
+  private static final AtomicLong CONCURRENCY_LIMITED = new AtomicLong();
+
+  private AdmissionControl() {
+  }
+
+  /**
+   * Admits call of user, taking token of user's bucket and slot of calls in progress.
+   * @param user User name.
+   * @param streaming Whether call is long running streaming one.
+   * @return 0 if call is admitted and {@link #release(boolean)} must follow, otherwise seconds to retry after.
+   */
+  static long admit(String user, boolean streaming) {
+    if (rateLimit > 0) {
+      Bucket bucket;
+      synchronized (BUCKETS) {
+        bucket = BUCKETS.computeIfAbsent(user, u -> new Bucket());
+      }
+      long waitNanos = bucket.take(System.nanoTime());
+      if (waitNanos > 0) {
+        RATE_LIMITED.incrementAndGet();
+        return Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+      }
+    }
+    AtomicInteger counter = streaming ? STREAMS_IN_FLIGHT : IN_FLIGHT;
+    int max = streaming ? maxConcurrentStreams : maxConcurrent;
+    int inFlight;
+    do {
+      inFlight = counter.get();
+      if (max > 0 && inFlight >= max) {
+        CONCURRENCY_LIMITED.incrementAndGet();
+        return 1;
+      }
+    } while (!counter.compareAndSet(inFlight, inFlight + 1));
+    ADMITTED.incrementAndGet();
+    return 0;
+  }
+
+  /**
+   * Releases slot taken by admitted call.
+   * @param streaming Whether call was admitted as streaming one.
+   */
+  static void release(boolean streaming) {
+    (streaming ? STREAMS_IN_FLIGHT : IN_FLIGHT).decrementAndGet();
+  }
+
+  /**
+   * Provides limits, counters and number of calls in progress.
+   * @return Values by name.
+   */
+  static Map<String, Long> getStatistics() {
+    Map<String, Long> stats = new LinkedHashMap<>();
+    stats.put("rateLimit", (long) rateLimit);
+    stats.put("rateBurst", (long) rateBurst);
+    stats.put("maxConcurrent", (long) maxConcurrent);
+    stats.put("maxConcurrentStreams", (long) maxConcurrentStreams);
+    stats.put("inFlight", (long) IN_FLIGHT.get());
+    stats.put("streamsInFlight", (long) STREAMS_IN_FLIGHT.get());
+    stats.put("admitted", ADMITTED.get());
+    stats.put("rateLimited", RATE_LIMITED.get());
+    stats.put("concurrencyLimited", CONCURRENCY_LIMITED.get());
+    synchronized (BUCKETS) {
+      stats.put("users", (long) BUCKETS.size());
+    }
+    return stats;
+  }
+
+  /**
+   * Forgets all user buckets.
+   */
+  static void reset() {
+    synchronized (BUCKETS) {
+      BUCKETS.clear();
+    }
+  }
+
+  /**
+   * Token bucket refilled at configured rate up to configured burst.
+   */
+  private static final class Bucket {
+    private double tokens = Math.max(1, rateBurst);
+    private long refilled = System.nanoTime();
+
+    /**
+     * Takes token if there is one.
+     * @param now Current time in nanoseconds.
+     * @return 0 if token was taken, otherwise nanoseconds until next token.
+     */
+    synchronized long take(long now) {
+      double perNano = rateLimit / (double) TimeUnit.SECONDS.toNanos(1);
+      tokens = Math.min(Math.max(1, rateBurst), tokens + (now - refilled) * perNano);
+      refilled = now;
+      if (tokens >= 1) {
+        tokens--;
+        return 0;
+      }
+      return (long) Math.ceil((1 - tokens) / perNano);
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.acegisecurity.Authentication;
+
+import hudson.model.ParameterValue;
+import hudson.model.Run;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import net.sf.json.JSONObject;
+
+/**
+ * Bounded executor and tickets for asynchronous parameter updates accepted by REST call.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class AsyncUpdates {
+
+  private static final Logger LOGGER = Logger.getLogger(AsyncUpdates.class.getName());
+
+  /** Number of threads applying asynchronous updates. */
+  static int threads = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".asyncThreads", 2);
+
+  /** Maximum number of queued asynchronous updates, further ones are rejected. */
+  static int queueSize = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".asyncQueueSize", 256);
+
+  /** Maximum number of remembered tickets, oldest ones are forgotten first. */
+  static int maxTickets = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".asyncMaxTickets", 10000);
+
+  private static final Map<String, Ticket> TICKETS = new LinkedHashMap<String, Ticket>() {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, Ticket> eldest) {
+      return size() > maxTickets;
+    }
+  };
+
+  private static ThreadPoolExecutor executor;
+
+  private AsyncUpdates() {
+  }
+
+  /**
+   * Queues update to be applied and made durable by worker thread on behalf of current user.
+   * @param job Job full name.
+   * @param run Run to update.
+   * @param values Values to set.
+   * @param expectedVersion Version run's parameters must still have when update is applied, null if unconditional.
+   * @return Ticket to poll status with.
+   * @throws RejectedExecutionException If queue is full.
+   */
+  static Ticket submit(String job, Run<?, ?> run, List<ParameterValue> values, String expectedVersion) {
+    final Ticket ticket = new Ticket(job, run.getNumber());
+    final Authentication auth = Jenkins.getAuthentication();
+    synchronized (TICKETS) {
+      TICKETS.put(ticket.id, ticket);
+    }
+    try {
+      executor().execute(() -> apply(ticket, auth, run, values, expectedVersion));
+    } catch (RejectedExecutionException e) {
+      synchronized (TICKETS) {
+        TICKETS.remove(ticket.id);
+      }
+      throw e;
+    }
+    return ticket;
+  }
+
+  /**
+   * Provides ticket by its identifier.
+   * @param id Ticket identifier.
+   * @return Ticket or null if it's unknown or was already forgotten.
+   */
+  static Ticket get(String id) {
+    synchronized (TICKETS) {
+      return TICKETS.get(id);
+    }
+  }
+
+  /**
+   * Stops accepting updates and waits for queued ones to be applied.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  static void shutdown() throws InterruptedException {
+    ThreadPoolExecutor e;
+    synchronized (AsyncUpdates.class) {
+      e = executor;
+      executor = null;
+    }
+    if (e != null) {
+      e.shutdown();
+      if (!e.awaitTermination(30, TimeUnit.SECONDS)) {
+        LOGGER.warning("Asynchronous parameter updates are still running after 30 seconds");
+      }
+    }
+  }
+
+  private static synchronized ThreadPoolExecutor executor() {
+    if (executor == null) {
+      executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<>(queueSize),
+          new NamingThreadFactory(new DaemonThreadFactory(), "SetParameterValue async update"),
+          new ThreadPoolExecutor.AbortPolicy());
+      executor.allowCoreThreadTimeOut(true);
+    }
+    return executor;
+  }
+
+  private static void apply(Ticket ticket, Authentication auth, Run<?, ?> run, List<ParameterValue> values,
+      String expectedVersion) {
+    ticket.state = State.RUNNING;
+    try (ACLContext ctx = ACL.as(auth)) {
+      // Version is compared under run's lock, same as for synchronous conditional update
+      ParameterUpdater.Result result = ParameterUpdater.update(run, values, expectedVersion);
+      // Ticket reports durable write, so don't leave it to write-behind window
+      SaveScheduler.flush(run);
+      ticket.changed = result.getChanged();
+      ticket.version = result.getVersion();
+      ticket.state = State.DURABLE;
+    } catch (ParameterUpdater.VersionMismatchException e) {
+      ticket.status = HttpServletResponse.SC_CONFLICT;
+      ticket.version = e.getCurrentVersion();
+      ticket.message = e.getMessage();
+      ticket.state = State.FAILED;
+    } catch (IOException | RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Asynchronous parameter update of " + run + " failed", e);
+      ticket.message = e.getMessage();
+      ticket.state = State.FAILED;
+    }
+  }
+
+  /**
+   * State of asynchronous update.
+   */
+  enum State {
+    QUEUED, RUNNING, DURABLE, FAILED
+  }
+
+  /**
+   * Status of single asynchronous update.
+   */
+  static final class Ticket {
+    private final String id = UUID.randomUUID().toString();
+    private final String job;
+    private final int run;
+    private volatile State state = State.QUEUED;
+    private volatile int changed;
+    private volatile String version;
+    private volatile int status;
+    private volatile String message;
+
+    Ticket(String job, int run) {
+      this.job = job;
+      this.run = run;
+    }
+
+    String getId() {
+      return id;
+    }
+
+    JSONObject toJson() {
+      JSONObject json = new JSONObject().element("id", id).element("job", job).element("run", run)
+          .element("state", state.name());
+      if (state == State.DURABLE) {
+        json.element("changed", changed);
+      }
+      if (version != null) {
+        json.element("version", version);
+      }
+      if (status != 0) {
+        // HTTP status equivalent of failure, such as 409 for version mismatch
+        json.element("status", status);
+      }
+      if (message != null) {
+        json.element("message", message);
+      }
+      return json;
+    }
+  }
+}
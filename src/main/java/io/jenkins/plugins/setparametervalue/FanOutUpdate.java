@@ -0,0 +1,160 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.model.Item;
+import hudson.model.ItemGroup;
+import hudson.model.Items;
+import hudson.model.Job;
+import hudson.model.ParametersAction;
+import hudson.model.Result;
+import hudson.model.Run;
+import jenkins.util.SystemProperties;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Filtered update of same parameters across runs of all jobs under folder, applied to each job separately,
+ * so jobs could be processed in parallel.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class FanOutUpdate {
+
+  private static final Logger LOGGER = Logger.getLogger(FanOutUpdate.class.getName());
+
+  /** Maximum number of jobs updated in parallel by single fan-out request. */
+  static int maxConcurrency = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".fanOutMaxConcurrency", 4);
+
+  private static final Result[] RESULTS = {Result.SUCCESS, Result.UNSTABLE, Result.FAILURE, Result.NOT_BUILT,
+      Result.ABORTED};
+
+  private final List<Parameter> parameters;
+  private final int from;
+  private final int to;
+  private final long fromTime;
+  private final long toTime;
+  private final Set<Result> results;
+
+  private FanOutUpdate(List<Parameter> parameters, int from, int to, long fromTime, long toTime,
+      Set<Result> results) {
+    this.parameters = parameters;
+    this.from = from;
+    this.to = to;
+    this.fromTime = fromTime;
+    this.toTime = toTime;
+    this.results = results;
+  }
+
+  /**
+   * Reads update from request JSON with parameter array and optional from, to, fromTime, toTime and result.
+   * @param json Request JSON.
+   * @return Update.
+   * @throws net.sf.json.JSONException If JSON is malformed.
+   * @throws IllegalArgumentException If result isn't supported.
+   */
+  static FanOutUpdate fromJson(JSONObject json) {
+    List<Parameter> parameters = ParameterBinder.bind(json.getJSONArray("parameter"));
+    Set<Result> results = null;
+    Object result = json.opt("result");
+    if (result != null) {
+      results = new HashSet<>();
+      if (result instanceof JSONArray) {
+        for (Object r : (JSONArray) result) {
+          results.add(toResult(String.valueOf(r)));
+        }
+      } else {
+        results.add(toResult(String.valueOf(result)));
+      }
+    }
+    return new FanOutUpdate(parameters, json.optInt("from", 0), json.optInt("to", 0),
+        json.optLong("fromTime", 0L), json.optLong("toTime", 0L), results);
+  }
+
+  /**
+   * Lists jobs under folder, which current user could update.
+   * @param group Folder or Jenkins itself.
+   * @param recursive Whether to include jobs of nested folders.
+   * @return Jobs.
+   */
+  static List<Job<?, ?>> jobs(ItemGroup<?> group, boolean recursive) {
+    List<Job<?, ?>> jobs = new ArrayList<>();
+    Iterable<? extends Item> items = recursive ? Items.allItems(group, Job.class) : group.getItems();
+    for (Item item : items) {
+      if (item instanceof Job && item.hasPermission(Run.UPDATE)) {
+        jobs.add((Job<?, ?>) item);
+      }
+    }
+    return jobs;
+  }
+
+  /**
+   * Updates all matching runs of job, walking from newest run in range to oldest one. Walk stops at first run
+   * started before fromTime, as runs start in order of their numbers, and once calling thread is interrupted.
+   * @param job Job.
+   * @return Progress record with numbers of matched, updated and skipped runs, where skipped ones
+   *     don't have all provided parameters defined.
+   */
+  JSONObject apply(Job<?, ?> job) {
+    int matched = 0;
+    int updated = 0;
+    int changed = 0;
+    int skipped = 0;
+    try {
+      Run<?, ?> run = to > 0 ? job.getNearestOldBuild(to) : job.getLastBuild();
+      for (; run != null && run.getNumber() >= from; run = run.getPreviousBuild()) {
+        if (fromTime > 0 && run.getTimeInMillis() < fromTime) {
+          break;
+        }
+        if (Thread.currentThread().isInterrupted()) {
+          return progress(job, "cancelled", matched, updated, changed, skipped);
+        }
+        if (!matches(run)) {
+          continue;
+        }
+        matched++;
+        ParametersAction pa = run.getAction(ParametersAction.class);
+        if (pa == null || !ParameterNameIndex.undefined(pa, parameters).isEmpty()) {
+          skipped++;
+          continue;
+        }
+        changed += ParameterUpdater.update(run, ParameterBinder.toValues(parameters));
+        updated++;
+      }
+    } catch (IOException | RuntimeException e) {
+      LOGGER.log(Level.WARNING, "Fan-out parameter update of " + job.getFullName() + " failed", e);
+      return progress(job, "error", matched, updated, changed, skipped).element("message", e.getMessage());
+    }
+    return progress(job, "ok", matched, updated, changed, skipped);
+  }
+
+  private boolean matches(Run<?, ?> run) {
+    if (toTime > 0 && run.getTimeInMillis() > toTime) {
+      return false;
+    }
+    return results == null || results.contains(run.getResult());
+  }
+
+  private static JSONObject progress(Job<?, ?> job, String status, int matched, int updated, int changed,
+      int skipped) {
+    return new JSONObject().element("job", job.getFullName()).element("status", status)
+        .element("matched", matched).element("updated", updated).element("skipped", skipped)
+        .element("changed", changed);
+  }
+
+  private static Result toResult(String name) {
+    for (Result r : RESULTS) {
+      if (r.toString().equalsIgnoreCase(name)) {
+        return r;
+      }
+    }
+    throw new IllegalArgumentException(String.format(Messages.SetParameterValuePlugin_errors_unknownResult(), name));
+  }
+}
@@ -7,6 +7,7 @@ import javax.servlet.ServletException;
 
 import org.jenkinsci.Symbol;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.QueryParameter;
 
 import hudson.Extension;
@@ -15,14 +16,14 @@ import hudson.Launcher;
 import hudson.model.AbstractProject;
 import hudson.model.Job;
 import hudson.model.ParameterValue;
-import hudson.model.ParametersAction;
 import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
 import hudson.util.FormValidation;
-import jenkins.model.Jenkins;
+import io.jenkins.plugins.setparametervalue.OperationMetrics.EntryPoint;
+import io.jenkins.plugins.setparametervalue.OperationMetrics.Phase;
 import jenkins.tasks.SimpleBuildStep;
 
 /**
@@ -35,26 +36,41 @@ public class GetParameterValueBuilder extends Builder implements SimpleBuildStep
 
   private final String name;
   private final String job;
-  private final int run;
+  private final String run;
   private final Object list;
 
   // TODO: expose later into JSON
   private boolean debug;
+  private boolean memoize;
 
   /**
    * Default ctor.
    * @param name Parameter name.
    * @param job Job.
-   * @param run Run.
+   * @param run Run number, permalink such as lastSuccessfulBuild or NAME=VALUE selector of latest run.
+   * @param list List to add value into.
    */
   @DataBoundConstructor
-  public GetParameterValueBuilder(String name, String job, int run, Object list) {
+  public GetParameterValueBuilder(String name, String job, String run, Object list) {
     this.name = name;
     this.job = job;
     this.run = run;
     this.list = list;
   }
 
+  /**
+   * Ctor with run number.
+   * @param name Parameter name.
+   * @param job Job.
+   * @param run Run.
+   * @param list List to add value into.
+   * @deprecated Use {@link #GetParameterValueBuilder(String, String, String, Object)}.
+   */
+  @Deprecated
+  public GetParameterValueBuilder(String name, String job, int run, Object list) {
+    this(name, job, String.valueOf(run), list);
+  }
+
   public String getName() {
     return name;
   }
@@ -63,7 +79,7 @@ public class GetParameterValueBuilder extends Builder implements SimpleBuildStep
     return job;
   }
 
-  public int getRun() {
+  public String getRun() {
     return run;
   }
 
@@ -72,17 +88,68 @@ public class GetParameterValueBuilder extends Builder implements SimpleBuildStep
     return list;
   }
 
+  public boolean isDebug() {
+    return debug;
+  }
+
+  @DataBoundSetter
+  public void setDebug(boolean debug) {
+    this.debug = debug;
+  }
+
+  public boolean isMemoize() {
+    return memoize;
+  }
+
+  /**
+   * Sets whether read value should be memoized for rest of calling build.
+   * @param memoize Whether to memoize.
+   */
+  @DataBoundSetter
+  public void setMemoize(boolean memoize) {
+    this.memoize = memoize;
+  }
+
   @Override
   public void perform(Run<?, ?> performrun, FilePath workspace, Launcher launcher, TaskListener listener)
       throws InterruptedException, IOException {
+    perform(performrun, listener);
+  }
+
+  /**
+   * Gets parameter value into list on behalf of freestyle build step or pipeline step execution.
+   * @param performrun Run which performs the step.
+   * @param listener Listener to log into.
+   */
+  void perform(Run<?, ?> performrun, TaskListener listener) {
+    long start = OperationMetrics.start();
+    try {
+      readValue(performrun, listener);
+    } finally {
+      OperationMetrics.record(EntryPoint.GET_STEP, Phase.TOTAL, start);
+    }
+  }
+
+  private void readValue(Run<?, ?> performrun, TaskListener listener) {
     listener.getLogger().println("GetParameterValue with parameter: " + name + ", job: " + job
         + ", and job's run: " + run);
     if (debug) {
       listener.getLogger().println("list: " + list + (list != null ? list.getClass() : "null"));
       listener.getLogger().println("performrun: " + performrun);
     }
+    if (run == null || run.isEmpty()) {
+      listener.getLogger().println("ERROR: " + Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingRunID());
+      performrun.setResult(Result.FAILURE);
+      return;
+    }
 
-    Job<?, ?> jobObj = (Job<?, ?>) Jenkins.get().getItemByFullName(job);
+    // Symbolic selectors move without writes, so only run numbers are memoized and indexed
+    Integer number = RunResolver.toNumber(run);
+    long generation = ParameterMemo.begin();
+    // Job is resolved first, so memo is keyed on its full name whatever spelling of path was used
+    long phaseStart = OperationMetrics.start();
+    Job<?, ?> jobObj = RunResolver.getJob(job);
+    OperationMetrics.record(EntryPoint.GET_STEP, Phase.JOB_LOOKUP, phaseStart);
     if (jobObj == null) {
       listener.getLogger().println(String.format("ERROR: Specified job '%s' was not found!", job));
       performrun.setResult(Result.FAILURE);
@@ -91,7 +158,27 @@ public class GetParameterValueBuilder extends Builder implements SimpleBuildStep
     if (debug) {
       listener.getLogger().println("jobObj: " + jobObj);
     }
-    Run<?, ?> runObj = (Run<?, ?>) jobObj.getBuild(String.valueOf(run));
+    String memoized = memoize && list != null && number != null
+        ? ParameterMemo.get(performrun, jobObj, number, name) : null;
+    if (memoized != null) {
+      if (debug) {
+        listener.getLogger().println("memoized: " + memoized);
+      }
+      ((List) list).add(memoized);
+      return;
+    }
+    // Serve from job's parameter index when possible, so whole run isn't loaded
+    String indexed = list != null && number != null ? ParameterIndex.lookup(jobObj, number, name) : null;
+    if (indexed != null) {
+      if (debug) {
+        listener.getLogger().println("indexed: " + indexed);
+      }
+      addValue(performrun, jobObj, indexed, generation);
+      return;
+    }
+    phaseStart = OperationMetrics.start();
+    Run<?, ?> runObj = RunResolver.getRun(jobObj, run);
+    OperationMetrics.record(EntryPoint.GET_STEP, Phase.RUN_LOOKUP, phaseStart);
     if (runObj == null) {
       listener.getLogger().println(String.format("ERROR: Specified job's run '%s' was not found!", run));
       performrun.setResult(Result.FAILURE);
@@ -106,24 +193,21 @@ public class GetParameterValueBuilder extends Builder implements SimpleBuildStep
       performrun.setResult(Result.FAILURE);
       return;
     }
-    List<ParametersAction> l = runObj.getActions(ParametersAction.class);
-    boolean found = false;
-    for (ParametersAction pa : l) {
-      ParameterValue pv = pa.getParameter(name);
-      //listener.getLogger().println("name: " + name + ", pv.getName(): " + pv.getName());
-      if (pv != null && name.equals(pv.getName())) {
-        //listener.getLogger().println("list adding value: " + pv.getValue().toString());
-        ((List) list).add(pv.getValue().toString());
-        //listener.getLogger().println("list size: " + ((List) list).size());
-        found = true;
-        break;
-      }
-    }
-    if (!found) {
+    ParameterValue pv = ParameterReader.find(runObj, name);
+    if (pv == null) {
       listener.getLogger().println(String.format("ERROR: Specified parameter '%s' was not found!", name));
       performrun.setResult(Result.FAILURE);
       return;
     }
+    addValue(performrun, jobObj, pv.getValue().toString(), generation);
+  }
+
+  private void addValue(Run<?, ?> performrun, Job<?, ?> jobObj, String value, long generation) {
+    ((List) list).add(value);
+    Integer number = RunResolver.toNumber(run);
+    if (memoize && number != null) {
+      ParameterMemo.put(performrun, jobObj, number, name, value, generation);
+    }
   }
 
   @Symbol("getParameterValue")
@@ -161,7 +245,7 @@ public class GetParameterValueBuilder extends Builder implements SimpleBuildStep
     }
 
     /**
-     * Checks job run identifier to be numeric.
+     * Checks job run identifier to be numeric, permalink or NAME=VALUE selector.
      * @param value Run identifier to use.
      * @return Result as FormValidation.
      * @throws IOException Possible exception1.
@@ -172,10 +256,8 @@ public class GetParameterValueBuilder extends Builder implements SimpleBuildStep
       if (value.length() == 0) {
         return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingRunID());
       }
-      try {
-        Integer.parseInt(value);
-      } catch (NumberFormatException nfe) {
-        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_nonNumericRunID());
+      if (!RunResolver.isValidId(value)) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_invalidRunID());
       }
       return FormValidation.ok();
     }
@@ -0,0 +1,173 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.ServletException;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.model.Job;
+import hudson.model.TaskListener;
+import hudson.util.FormValidation;
+
+/**
+ * Step to get value of parameter across range of job's builds as a map of run number to value.
+ * Range longer than plugin's cap of visited runs fails the step rather than returning part of it.
+ *
+ * @author Andrejus Chaliapinas
+ *
+ */
+public class GetParameterValueHistoryStep extends Step {
+
+  private final String name;
+  private final String job;
+  private int from;
+  private int to;
+  private int last;
+
+  /**
+   * Default ctor.
+   * @param name Parameter name.
+   * @param job Job.
+   */
+  @DataBoundConstructor
+  public GetParameterValueHistoryStep(String name, String job) {
+    this.name = name;
+    this.job = job;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getJob() {
+    return job;
+  }
+
+  public int getFrom() {
+    return from;
+  }
+
+  @DataBoundSetter
+  public void setFrom(int from) {
+    this.from = from;
+  }
+
+  public int getTo() {
+    return to;
+  }
+
+  @DataBoundSetter
+  public void setTo(int to) {
+    this.to = to;
+  }
+
+  public int getLast() {
+    return last;
+  }
+
+  @DataBoundSetter
+  public void setLast(int last) {
+    this.last = last;
+  }
+
+  @Override
+  public StepExecution start(StepContext context) throws Exception {
+    return new Execution(this, context);
+  }
+
+  /**
+   * Execution, which walks job's builds off CPS thread.
+   */
+  private static final class Execution extends SynchronousNonBlockingStepExecution<Map<Integer, String>> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient GetParameterValueHistoryStep step;
+
+    Execution(GetParameterValueHistoryStep step, StepContext context) {
+      super(context);
+      this.step = step;
+    }
+
+    @Override
+    protected Map<Integer, String> run() throws Exception {
+      TaskListener listener = getContext().get(TaskListener.class);
+      listener.getLogger().println("GetParameterValueHistory with parameter: " + step.name + ", job: " + step.job
+          + ", and job's runs from: " + step.from + ", to: " + step.to + ", last: " + step.last);
+
+      Job<?, ?> jobObj = RunResolver.getJob(step.job);
+      if (jobObj == null) {
+        throw new AbortException(String.format("Specified job '%s' was not found!", step.job));
+      }
+      ParameterHistory.Page page = ParameterHistory.read(jobObj, step.name, step.from, step.to, step.last);
+      if (page.isTruncated()) {
+        // Map result can't tell partial range from complete one, so such range is refused
+        throw new AbortException(String.format("Specified range of job's runs exceeds limit of %d runs, "
+            + "narrow it with from, to or last, next run not read is %d!", ParameterHistory.maxRuns,
+            page.getNext()));
+      }
+      return page.getValues();
+    }
+  }
+
+  @Extension
+  public static final class DescriptorImpl extends StepDescriptor {
+
+    @Override
+    public Set<? extends Class<?>> getRequiredContext() {
+      return Collections.singleton(TaskListener.class);
+    }
+
+    @Override
+    public String getFunctionName() {
+      return "getParameterValueHistory";
+    }
+
+    @Override
+    public String getDisplayName() {
+      return Messages.GetParameterValueHistoryStep_DescriptorImpl_DisplayName();
+    }
+
+    /**
+     * Checks job name.
+     * @param value Job name to use.
+     * @return Result as FormValidation.
+     * @throws IOException Possible exception1.
+     * @throws ServletException Possible exception2.
+     */
+    public FormValidation doCheckJob(@QueryParameter String value)
+        throws IOException, ServletException {
+      if (value.length() == 0) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingJobName());
+      }
+      return FormValidation.ok();
+    }
+
+    /**
+     * Checks parameter name.
+     * @param value Parameter name to use.
+     * @return Result as FormValidation.
+     * @throws IOException Possible exception1.
+     * @throws ServletException Possible exception2.
+     */
+    public FormValidation doCheckName(@QueryParameter String value)
+        throws IOException, ServletException {
+      if (value.length() == 0) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingParameterName());
+      }
+      return FormValidation.ok();
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.servlet.ServletException;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.FormValidation;
+
+/**
+ * Pipeline step to get parameter value, which does lookup and run loading off CPS VM thread.
+ * Takes same arguments as {@link GetParameterValueBuilder}, adds value into list when it's provided
+ * and also returns it.
+ *
+ * @author Andrejus Chaliapinas
+ *
+ */
+public class GetParameterValueStep extends Step {
+
+  private final String name;
+  private final String job;
+  private final String run;
+  private Object list;
+  private boolean memoize;
+  private boolean debug;
+
+  /**
+   * Default ctor.
+   * @param name Parameter name.
+   * @param job Job.
+   * @param run Run number, permalink such as lastSuccessfulBuild or NAME=VALUE selector of latest run.
+   */
+  @DataBoundConstructor
+  public GetParameterValueStep(String name, String job, Object run) {
+    this.name = name;
+    this.job = job;
+    this.run = run != null ? String.valueOf(run) : null;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getJob() {
+    return job;
+  }
+
+  public String getRun() {
+    return run;
+  }
+
+  public Object getList() {
+    return list;
+  }
+
+  @DataBoundSetter
+  public void setList(Object list) {
+    this.list = list;
+  }
+
+  public boolean isMemoize() {
+    return memoize;
+  }
+
+  /**
+   * Sets whether value should be memoized, so repeated reads by same build are answered from memory
+   * until parameter is written by this plugin.
+   * @param memoize Whether to memoize.
+   */
+  @DataBoundSetter
+  public void setMemoize(boolean memoize) {
+    this.memoize = memoize;
+  }
+
+  public boolean isDebug() {
+    return debug;
+  }
+
+  @DataBoundSetter
+  public void setDebug(boolean debug) {
+    this.debug = debug;
+  }
+
+  @Override
+  public StepExecution start(StepContext context) throws Exception {
+    if (run == null || run.isEmpty()) {
+      throw new AbortException(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingRunID());
+    }
+    return new Execution(this, context);
+  }
+
+  /**
+   * Execution, which runs same code as freestyle build step on background thread.
+   */
+  private static final class Execution extends SynchronousNonBlockingStepExecution<String> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient GetParameterValueStep step;
+
+    Execution(GetParameterValueStep step, StepContext context) {
+      super(context);
+      this.step = step;
+    }
+
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    protected String run() throws Exception {
+      List values = step.list instanceof List ? (List) step.list : new ArrayList<>();
+      int size = values.size();
+      GetParameterValueBuilder builder = new GetParameterValueBuilder(step.name, step.job, step.run, values);
+      builder.setMemoize(step.memoize);
+      builder.setDebug(step.debug);
+      builder.perform(getContext().get(Run.class), getContext().get(TaskListener.class));
+      return values.size() > size ? String.valueOf(values.get(values.size() - 1)) : null;
+    }
+  }
+
+  @Extension
+  public static final class DescriptorImpl extends StepDescriptor {
+
+    @Override
+    public Set<? extends Class<?>> getRequiredContext() {
+      return new HashSet<>(Arrays.asList(Run.class, TaskListener.class));
+    }
+
+    @Override
+    public String getFunctionName() {
+      return "getParameterValue";
+    }
+
+    @Override
+    public String getDisplayName() {
+      return Messages.GetParameterValueStep_DescriptorImpl_DisplayName();
+    }
+
+    /**
+     * Checks job name.
+     * @param value Job name to use.
+     * @return Result as FormValidation.
+     * @throws IOException Possible exception1.
+     * @throws ServletException Possible exception2.
+     */
+    public FormValidation doCheckJob(@QueryParameter String value)
+        throws IOException, ServletException {
+      if (value.length() == 0) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingJobName());
+      }
+      return FormValidation.ok();
+    }
+
+    /**
+     * Checks parameter name.
+     * @param value Parameter name to use.
+     * @return Result as FormValidation.
+     * @throws IOException Possible exception1.
+     * @throws ServletException Possible exception2.
+     */
+    public FormValidation doCheckName(@QueryParameter String value)
+        throws IOException, ServletException {
+      if (value.length() == 0) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingParameterName());
+      }
+      return FormValidation.ok();
+    }
+
+    /**
+     * Checks job run identifier to be numeric, permalink or NAME=VALUE selector.
+     * @param value Run identifier to use.
+     * @return Result as FormValidation.
+     * @throws IOException Possible exception1.
+     * @throws ServletException Possible exception2.
+     */
+    public FormValidation doCheckRun(@QueryParameter String value)
+        throws IOException, ServletException {
+      if (value.length() == 0) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingRunID());
+      }
+      if (!RunResolver.isValidId(value)) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_invalidRunID());
+      }
+      return FormValidation.ok();
+    }
+  }
+}
@@ -0,0 +1,230 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.ServletException;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.FormValidation;
+
+/**
+ * Step to get many parameter values of specified job's run at once as a map.
+ * Sensitive parameters are never returned, requesting one fails the step unless missing ones are skipped
+ * or defaulted.
+ *
+ * @author Andrejus Chaliapinas
+ *
+ */
+public class GetParameterValuesStep extends Step {
+
+  /**
+   * What to do with requested parameter, which isn't defined for run.
+   */
+  public enum MissingPolicy {
+    /** Fail the step. */
+    FAIL,
+    /** Leave parameter out of result. */
+    SKIP,
+    /** Return default value for parameter. */
+    DEFAULT
+  }
+
+  private final String job;
+  private final String run;
+  private List<String> names;
+  private MissingPolicy missing = MissingPolicy.FAIL;
+  private String defaultValue;
+
+  /**
+   * Default ctor.
+   * @param job Job.
+   * @param run Run number, permalink such as lastSuccessfulBuild or NAME=VALUE selector of latest run.
+   */
+  @DataBoundConstructor
+  public GetParameterValuesStep(String job, Object run) {
+    this.job = job;
+    this.run = run != null ? String.valueOf(run) : null;
+  }
+
+  public String getJob() {
+    return job;
+  }
+
+  public String getRun() {
+    return run;
+  }
+
+  public List<String> getNames() {
+    return names;
+  }
+
+  /**
+   * Sets names of parameters to get, all parameters are returned if not set or empty.
+   * @param names Parameter names.
+   */
+  @DataBoundSetter
+  public void setNames(List<String> names) {
+    this.names = names != null && !names.isEmpty() ? new ArrayList<>(names) : null;
+  }
+
+  public MissingPolicy getMissing() {
+    return missing;
+  }
+
+  @DataBoundSetter
+  public void setMissing(MissingPolicy missing) {
+    this.missing = missing != null ? missing : MissingPolicy.FAIL;
+  }
+
+  public String getDefaultValue() {
+    return defaultValue;
+  }
+
+  @DataBoundSetter
+  public void setDefaultValue(String defaultValue) {
+    this.defaultValue = defaultValue;
+  }
+
+  @Override
+  public StepExecution start(StepContext context) throws Exception {
+    if (run == null || run.isEmpty()) {
+      throw new AbortException(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingRunID());
+    }
+    return new Execution(this, context);
+  }
+
+  /**
+   * Execution, which reads all values with single scan of run's parameters.
+   */
+  private static final class Execution extends SynchronousNonBlockingStepExecution<Map<String, String>> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient GetParameterValuesStep step;
+
+    Execution(GetParameterValuesStep step, StepContext context) {
+      super(context);
+      this.step = step;
+    }
+
+    @Override
+    protected Map<String, String> run() throws Exception {
+      TaskListener listener = getContext().get(TaskListener.class);
+      listener.getLogger().println("GetParameterValues with parameters: "
+          + (step.names != null ? step.names : "all") + ", job: " + step.job + ", and job's run: " + step.run);
+
+      Job<?, ?> jobObj = RunResolver.getJob(step.job);
+      if (jobObj == null) {
+        throw new AbortException(String.format("Specified job '%s' was not found!", step.job));
+      }
+      Run<?, ?> runObj = RunResolver.getRun(jobObj, step.run);
+      if (runObj == null) {
+        throw new AbortException(String.format("Specified job's run '%s' was not found!", step.run));
+      }
+
+      Set<String> sensitive = new LinkedHashSet<>();
+      Map<String, String> found = ParameterReader.values(runObj,
+          step.names != null ? new HashSet<>(step.names) : null, sensitive);
+      if (!sensitive.isEmpty()) {
+        // Sensitive parameters exist but aren't returned, so they aren't reported as absent ones
+        if (step.names != null && step.missing == MissingPolicy.FAIL) {
+          throw new AbortException(String.format("Specified parameters '%s' are sensitive and can't be read!",
+              String.join("', '", sensitive)));
+        }
+        listener.getLogger().println("Sensitive parameters aren't returned: " + String.join(", ", sensitive));
+      }
+      if (step.names == null) {
+        return found;
+      }
+      Map<String, String> result = new LinkedHashMap<>();
+      List<String> absent = new ArrayList<>();
+      for (String name : step.names) {
+        String value = found.get(name);
+        if (value != null) {
+          result.put(name, value);
+        } else if (step.missing == MissingPolicy.DEFAULT) {
+          result.put(name, step.defaultValue);
+        } else {
+          absent.add(name);
+        }
+      }
+      if (!absent.isEmpty() && step.missing == MissingPolicy.FAIL) {
+        throw new AbortException(String.format("Specified parameters '%s' were not found!",
+            String.join("', '", absent)));
+      }
+      return result;
+    }
+  }
+
+  @Extension
+  public static final class DescriptorImpl extends StepDescriptor {
+
+    @Override
+    public Set<? extends Class<?>> getRequiredContext() {
+      return Collections.singleton(TaskListener.class);
+    }
+
+    @Override
+    public String getFunctionName() {
+      return "getParameterValues";
+    }
+
+    @Override
+    public String getDisplayName() {
+      return Messages.GetParameterValuesStep_DescriptorImpl_DisplayName();
+    }
+
+    /**
+     * Checks job name.
+     * @param value Job name to use.
+     * @return Result as FormValidation.
+     * @throws IOException Possible exception1.
+     * @throws ServletException Possible exception2.
+     */
+    public FormValidation doCheckJob(@QueryParameter String value)
+        throws IOException, ServletException {
+      if (value.length() == 0) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingJobName());
+      }
+      return FormValidation.ok();
+    }
+
+    /**
+     * Checks job run identifier to be numeric, permalink or NAME=VALUE selector.
+     * @param value Run identifier to use.
+     * @return Result as FormValidation.
+     * @throws IOException Possible exception1.
+     * @throws ServletException Possible exception2.
+     */
+    public FormValidation doCheckRun(@QueryParameter String value)
+        throws IOException, ServletException {
+      if (value.length() == 0) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingRunID());
+      }
+      if (!RunResolver.isValidId(value)) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_invalidRunID());
+      }
+      return FormValidation.ok();
+    }
+  }
+}
@@ -0,0 +1,50 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.CachedGauge;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricSet;
+
+import hudson.Extension;
+import io.jenkins.plugins.setparametervalue.OperationMetrics.EntryPoint;
+import io.jenkins.plugins.setparametervalue.OperationMetrics.Phase;
+import jenkins.metrics.api.MetricProvider;
+
+/**
+ * Publishes operation metrics into Jenkins Metrics registry when metrics plugin is installed.
+ * Window of each entry point and phase is sorted once per scrape, all its statistics read same snapshot.
+ *
+ * @author Andrejus Chaliapinas
+ */
+@Extension(optional = true)
+public class OperationMetricProvider extends MetricProvider {
+
+  private static final String[] STATISTICS = {"count", "p50", "p95", "p99", "max"};
+
+  @Override
+  public MetricSet getMetricSet() {
+    final Map<String, Metric> metrics = new LinkedHashMap<>();
+    for (EntryPoint e : EntryPoint.values()) {
+      for (Phase p : Phase.values()) {
+        final OperationMetrics.Histogram histogram = OperationMetrics.get(e, p);
+        final CachedGauge<Map<String, Long>> snapshot = new CachedGauge<Map<String, Long>>(1, TimeUnit.SECONDS) {
+          @Override
+          protected Map<String, Long> loadValue() {
+            return histogram.getStatistics();
+          }
+        };
+        for (final String stat : STATISTICS) {
+          Gauge<Long> gauge = () -> snapshot.getValue().get(stat);
+          metrics.put(MetricRegistry.name("jenkins", "plugins", "set-parameter-value", e.getId(), p.getId(), stat),
+              gauge);
+        }
+      }
+    }
+    return () -> metrics;
+  }
+}
@@ -0,0 +1,181 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import jenkins.util.SystemProperties;
+
+/**
+ * Counters and latency histograms of plugin operations split by entry point and phase.
+ * Percentiles are computed over sliding window of most recent samples and reported in microseconds.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class OperationMetrics {
+
+  /** Number of most recent samples kept by each histogram. */
+  static int windowSize = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".metricsWindowSize", 1024);
+
+  private static final Histogram[][] HISTOGRAMS = new Histogram[EntryPoint.values().length][Phase.values().length];
+
+  static {
+    for (EntryPoint e : EntryPoint.values()) {
+      for (Phase p : Phase.values()) {
+        HISTOGRAMS[e.ordinal()][p.ordinal()] = new Histogram(Math.max(1, windowSize));
+      }
+    }
+  }
+
+  private OperationMetrics() {
+  }
+
+  /**
+   * Starts timing of operation phase.
+   * @return Start timestamp to pass to {@link #record}.
+   */
+  static long start() {
+    return System.nanoTime();
+  }
+
+  /**
+   * Records duration of operation phase which was started by {@link #start}.
+   * @param entryPoint Entry point.
+   * @param phase Phase.
+   * @param startNanos Start timestamp.
+   */
+  static void record(EntryPoint entryPoint, Phase phase, long startNanos) {
+    get(entryPoint, phase).update(System.nanoTime() - startNanos);
+  }
+
+  static Histogram get(EntryPoint entryPoint, Phase phase) {
+    return HISTOGRAMS[entryPoint.ordinal()][phase.ordinal()];
+  }
+
+  /**
+   * Provides statistics of all histograms.
+   * @return Statistics by entry point and phase.
+   */
+  static Map<String, Map<String, Map<String, Long>>> getStatistics() {
+    Map<String, Map<String, Map<String, Long>>> stats = new LinkedHashMap<>();
+    for (EntryPoint e : EntryPoint.values()) {
+      Map<String, Map<String, Long>> phases = new LinkedHashMap<>();
+      for (Phase p : Phase.values()) {
+        phases.put(p.getId(), get(e, p).getStatistics());
+      }
+      stats.put(e.getId(), phases);
+    }
+    return stats;
+  }
+
+  /**
+   * Place where operation was requested from.
+   */
+  enum EntryPoint {
+    REST("rest"), SET_STEP("setParameterValue"), GET_STEP("getParameterValue");
+
+    private final String id;
+
+    EntryPoint(String id) {
+      this.id = id;
+    }
+
+    String getId() {
+      return id;
+    }
+  }
+
+  /**
+   * Timed part of operation.
+   */
+  enum Phase {
+    JOB_LOOKUP("jobLookup"), RUN_LOOKUP("runLookup"), VALIDATION("validation"), SAVE("save"), TOTAL("total");
+
+    private final String id;
+
+    Phase(String id) {
+      this.id = id;
+    }
+
+    String getId() {
+      return id;
+    }
+  }
+
+  /**
+   * Sample counter with sliding window of most recent durations.
+   */
+  static final class Histogram {
+    private final LongAdder count = new LongAdder();
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLongArray window;
+    /** Statistics computed last, reused until new sample is recorded. */
+    private volatile Snapshot snapshot;
+
+    Histogram(int size) {
+      window = new AtomicLongArray(size);
+    }
+
+    void update(long nanos) {
+      count.increment();
+      window.set((int) (next.getAndIncrement() % window.length()), nanos);
+    }
+
+    long getCount() {
+      return count.sum();
+    }
+
+    /**
+     * Provides count and percentiles of recent durations.
+     * @return Count, p50, p95, p99 and max, durations are in microseconds.
+     */
+    Map<String, Long> getStatistics() {
+      long recorded = next.get();
+      Snapshot last = snapshot;
+      if (last != null && last.recorded == recorded) {
+        return last.stats;
+      }
+      long[] samples = new long[(int) Math.min(recorded, window.length())];
+      for (int i = 0; i < samples.length; i++) {
+        samples[i] = window.get(i);
+      }
+      Arrays.sort(samples);
+      Map<String, Long> stats = new LinkedHashMap<>();
+      stats.put("count", getCount());
+      stats.put("p50", percentile(samples, 0.50));
+      stats.put("p95", percentile(samples, 0.95));
+      stats.put("p99", percentile(samples, 0.99));
+      stats.put("max", samples.length > 0 ? TimeUnit.NANOSECONDS.toMicros(samples[samples.length - 1]) : 0L);
+      stats = Collections.unmodifiableMap(stats);
+      snapshot = new Snapshot(recorded, stats);
+      return stats;
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+      if (sorted.length == 0) {
+        return 0L;
+      }
+      int index = (int) Math.ceil(quantile * sorted.length) - 1;
+      return TimeUnit.NANOSECONDS.toMicros(sorted[Math.max(0, index)]);
+    }
+  }
+
+  /**
+   * Statistics of histogram together with number of samples recorded when they were computed.
+   */
+  private static final class Snapshot {
+    private final long recorded;
+    private final Map<String, Long> stats;
+
+    Snapshot(long recorded, Map<String, Long> stats) {
+      this.recorded = recorded;
+      this.stats = stats;
+    }
+  }
+}
@@ -22,7 +22,6 @@ public class Parameter {
   @SuppressWarnings({"checkstyle:parametername"})
   @DataBoundConstructor
   public Parameter(String _class, String name, String value) {
-    System.out.println("--- Parameter ctor name: " + name);
     this._class = _class;
     this.name = name;
     this.value = value;
@@ -0,0 +1,100 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.model.BooleanParameterValue;
+import hudson.model.ParameterValue;
+import hudson.model.PasswordParameterValue;
+import hudson.model.StringParameterValue;
+import hudson.model.TextParameterValue;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Binds provided parameters from JSON and turns them into typed values by their _class
+ * through fixed registry of factories, without reflective binding per element.
+ * Values of any other _class are set as strings, same as all values were before typed binding,
+ * so existing clients sending for example choice parameters keep working.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class ParameterBinder {
+
+  private static final Logger LOGGER = Logger.getLogger(ParameterBinder.class.getName());
+
+  private static final Map<String, ValueFactory> FACTORIES;
+
+  static {
+    Map<String, ValueFactory> factories = new HashMap<>();
+    factories.put(StringParameterValue.class.getName(), StringParameterValue::new);
+    factories.put(TextParameterValue.class.getName(), TextParameterValue::new);
+    factories.put(BooleanParameterValue.class.getName(),
+        (name, value) -> new BooleanParameterValue(name, Boolean.parseBoolean(value)));
+    factories.put(PasswordParameterValue.class.getName(), PasswordParameterValue::new);
+    FACTORIES = Collections.unmodifiableMap(factories);
+  }
+
+  private ParameterBinder() {
+  }
+
+  /**
+   * Binds array of provided parameters.
+   * @param array JSON array of objects with _class, name and value.
+   * @return Provided parameters in array order.
+   * @throws net.sf.json.JSONException If element isn't object or has no name.
+   */
+  static List<Parameter> bind(JSONArray array) {
+    List<Parameter> provided = new ArrayList<>(array.size());
+    for (int i = 0; i < array.size(); i++) {
+      JSONObject json = array.getJSONObject(i);
+      provided.add(new Parameter(json.optString("_class", null), json.getString("name"),
+          json.optString("value", null)));
+    }
+    return provided;
+  }
+
+  /**
+   * Creates typed values of provided parameters.
+   * @param provided Provided parameters.
+   * @return Values in provided order.
+   */
+  static List<ParameterValue> toValues(List<Parameter> provided) {
+    List<ParameterValue> values = new ArrayList<>(provided.size());
+    for (Parameter p : provided) {
+      values.add(toValue(p.get_class(), p.getName(), p.getValue()));
+    }
+    return values;
+  }
+
+  /**
+   * Creates typed value, string one when class isn't specified or has no factory.
+   * @param className Parameter value class name, could be null or empty.
+   * @param name Parameter name.
+   * @param value Parameter value.
+   * @return Parameter value.
+   */
+  static ParameterValue toValue(String className, String name, String value) {
+    if (className == null || className.isEmpty()) {
+      return new StringParameterValue(name, value);
+    }
+    ValueFactory factory = FACTORIES.get(className);
+    if (factory == null) {
+      LOGGER.log(Level.FINE, "Setting parameter '" + name + "' of unsupported class " + className + " as string");
+      return new StringParameterValue(name, value);
+    }
+    return factory.create(name, value);
+  }
+
+  /**
+   * Factory of parameter value of single type.
+   */
+  private interface ValueFactory {
+    ParameterValue create(String name, String value);
+  }
+}
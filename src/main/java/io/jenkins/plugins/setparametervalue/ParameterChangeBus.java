@@ -0,0 +1,249 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.acegisecurity.Authentication;
+
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.ParameterValue;
+import hudson.model.Run;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+import net.sf.json.JSONObject;
+
+/**
+ * Delivers parameter changes written through {@link ParameterUpdater} to registered listeners,
+ * such as change stream subscribers. Recent change events are also kept in bounded history, so change stream
+ * which ended after bounded time could be resumed from last event it has sent without losing changes.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class ParameterChangeBus {
+
+  private static final Logger LOGGER = Logger.getLogger(ParameterChangeBus.class.getName());
+
+  /** Number of events buffered for single subscriber, subscriber is dropped once buffer is full. */
+  static int bufferSize = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".changeBufferSize", 1024);
+
+  /** Maximum number of concurrent change stream subscribers. */
+  static int maxSubscribers = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".changeMaxSubscribers", 64);
+
+  /** Number of most recent change events kept to resume change streams from. */
+  static int historySize = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".changeHistorySize", 1024);
+
+  /** Time in milliseconds after which change stream ends and client reconnects, so request thread is freed. */
+  static int streamMaxMillis = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".changeStreamMaxMillis", 30000);
+
+  /** Number of events after which change stream ends and client reconnects. */
+  static int streamMaxEvents = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".changeStreamMaxEvents", 1000);
+
+  private static final List<Listener> LISTENERS = new CopyOnWriteArrayList<>();
+
+  private static final Deque<JSONObject> HISTORY = new ArrayDeque<>();
+
+  private static final AtomicLong SEQUENCE = new AtomicLong();
+
+  private ParameterChangeBus() {
+  }
+
+  /**
+   * Notifies listeners about values written into run, called under run's lock so events of run stay ordered.
+   * @param run Updated run.
+   * @param values Written values.
+   */
+  static void publish(Run<?, ?> run, List<ParameterValue> values) {
+    // Events are built once, so subscribers and history share their ids, which are kept in order in history
+    List<JSONObject> events;
+    synchronized (HISTORY) {
+      events = toEvents(run, values);
+      remember(events);
+    }
+    for (Listener listener : LISTENERS) {
+      try {
+        if (listener instanceof Subscriber) {
+          ((Subscriber) listener).offer(run.getParent(), events);
+        } else {
+          listener.onChange(run, values);
+        }
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Parameter change listener failed", e);
+      }
+    }
+  }
+
+  /**
+   * Provides remembered events after given one, which are visible for authentication.
+   * @param lastId Id of last event client has seen.
+   * @param prefix Job full name or folder prefix to filter by, empty for all jobs.
+   * @param auth Authentication to check read permission of jobs with.
+   * @return Events in order or null if some events after given one are already forgotten.
+   */
+  static List<JSONObject> since(long lastId, String prefix, Authentication auth) {
+    List<JSONObject> recent;
+    synchronized (HISTORY) {
+      JSONObject oldest = HISTORY.peekFirst();
+      long firstKept = oldest != null ? oldest.getLong("id") : SEQUENCE.get() + 1;
+      if (lastId + 1 < firstKept && lastId < SEQUENCE.get()) {
+        return null;
+      }
+      recent = new ArrayList<>();
+      for (JSONObject event : HISTORY) {
+        if (event.getLong("id") > lastId) {
+          recent.add(event);
+        }
+      }
+    }
+    List<JSONObject> visible = new ArrayList<>(recent.size());
+    try (ACLContext ctx = ACL.as(ACL.SYSTEM)) {
+      for (JSONObject event : recent) {
+        String fullName = event.getString("job");
+        Job<?, ?> job = Jenkins.get().getItemByFullName(fullName, Job.class);
+        if (matches(prefix, fullName) && job != null && job.getACL().hasPermission(auth, Item.READ)) {
+          visible.add(event);
+        }
+      }
+    }
+    return visible;
+  }
+
+  /**
+   * Provides id of last published event.
+   * @return Event id, 0 if none was published yet.
+   */
+  static long lastId() {
+    return SEQUENCE.get();
+  }
+
+  private static List<JSONObject> toEvents(Run<?, ?> run, List<ParameterValue> values) {
+    List<JSONObject> events = new ArrayList<>(values.size());
+    for (ParameterValue pv : values) {
+      JSONObject event = new JSONObject().element("id", SEQUENCE.incrementAndGet())
+          .element("job", run.getParent().getFullName()).element("run", run.getNumber())
+          .element("name", pv.getName());
+      if (!pv.isSensitive()) {
+        event.element("value", String.valueOf(pv.getValue()));
+      }
+      events.add(event);
+    }
+    return events;
+  }
+
+  private static void remember(List<JSONObject> events) {
+    HISTORY.addAll(events);
+    while (HISTORY.size() > Math.max(0, historySize)) {
+      HISTORY.removeFirst();
+    }
+  }
+
+  private static boolean matches(String prefix, String fullName) {
+    return prefix.isEmpty() || fullName.equals(prefix) || fullName.startsWith(prefix.endsWith("/")
+        ? prefix : prefix + "/");
+  }
+
+  static void register(Listener listener) {
+    LISTENERS.add(listener);
+  }
+
+  static void unregister(Listener listener) {
+    LISTENERS.remove(listener);
+  }
+
+  /**
+   * Registers change stream subscriber if limit of subscribers isn't reached.
+   * @param prefix Job full name or folder prefix to filter by, empty for all jobs.
+   * @param auth Authentication to check read permission of jobs with.
+   * @return Subscriber or null if there are too many subscribers.
+   */
+  static synchronized Subscriber subscribe(String prefix, Authentication auth) {
+    int subscribers = 0;
+    for (Listener listener : LISTENERS) {
+      if (listener instanceof Subscriber) {
+        subscribers++;
+      }
+    }
+    if (subscribers >= maxSubscribers) {
+      return null;
+    }
+    Subscriber subscriber = new Subscriber(prefix, auth, Math.max(1, bufferSize));
+    register(subscriber);
+    return subscriber;
+  }
+
+  /**
+   * Receives written values.
+   */
+  interface Listener {
+    void onChange(Run<?, ?> run, List<ParameterValue> values);
+  }
+
+  /**
+   * Change stream subscriber with bounded buffer of events, which is dropped once buffer overflows.
+   */
+  static final class Subscriber implements Listener {
+    private final String prefix;
+    private final Authentication auth;
+    private final BlockingQueue<JSONObject> events;
+    private volatile boolean dropped;
+
+    Subscriber(String prefix, Authentication auth, int capacity) {
+      this.prefix = prefix;
+      this.auth = auth;
+      this.events = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @Override
+    public void onChange(Run<?, ?> run, List<ParameterValue> values) {
+      offer(run.getParent(), toEvents(run, values));
+    }
+
+    void offer(Job<?, ?> job, List<JSONObject> changes) {
+      if (dropped || !matches(prefix, job.getFullName()) || !job.getACL().hasPermission(auth, Item.READ)) {
+        return;
+      }
+      for (JSONObject event : changes) {
+        if (!events.offer(event)) {
+          // Slow consumer mustn't hold memory or writers
+          dropped = true;
+          unregister(this);
+          return;
+        }
+      }
+    }
+
+    /**
+     * Waits for next event.
+     * @param timeout Maximum time to wait in milliseconds.
+     * @return Event or null if none arrived in time.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    JSONObject poll(long timeout) throws InterruptedException {
+      return events.poll(timeout, TimeUnit.MILLISECONDS);
+    }
+
+    boolean isDropped() {
+      return dropped && events.isEmpty();
+    }
+
+    void close() {
+      unregister(this);
+    }
+  }
+}
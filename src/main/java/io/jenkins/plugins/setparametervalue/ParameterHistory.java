@@ -0,0 +1,83 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import hudson.model.Job;
+import hudson.model.ParameterValue;
+import hudson.model.Run;
+import jenkins.util.SystemProperties;
+
+/**
+ * Reads value of single parameter across range of job's build history. Range exceeding limit of visited runs
+ * is read partially and marked truncated, with number of next run to continue from.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class ParameterHistory {
+
+  /** Maximum number of runs visited by single range read. */
+  static int maxRuns = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".historyMaxRuns", 1000);
+
+  private ParameterHistory() {
+  }
+
+  /**
+   * Walks runs from newest to oldest within range, loading one previous run at a time and stopping early
+   * once range start or limit is reached.
+   * @param job Job.
+   * @param name Parameter name.
+   * @param from Lowest run number to include, 0 for no lower bound.
+   * @param to Highest run number to include, 0 for last build.
+   * @param last Maximum number of runs to visit, 0 for {@link #maxRuns}.
+   * @return Values read and whether range was cut by {@link #maxRuns}.
+   */
+  static Page read(Job<?, ?> job, String name, int from, int to, int last) {
+    int limit = last > 0 ? Math.min(last, maxRuns) : maxRuns;
+    Map<Integer, String> values = new LinkedHashMap<>();
+    Run<?, ?> run = to > 0 ? job.getNearestOldBuild(to) : job.getLastBuild();
+    while (run != null && run.getNumber() >= from && values.size() < limit) {
+      ParameterValue pv = ParameterReader.find(run, name);
+      values.put(run.getNumber(), pv != null && !pv.isSensitive() ? String.valueOf(pv.getValue()) : null);
+      run = run.getPreviousBuild();
+    }
+    // Run left in range was cut by plugin's cap rather than by requested number of runs
+    boolean more = run != null && run.getNumber() >= from;
+    boolean truncated = more && (last <= 0 || last > maxRuns);
+    return new Page(values, truncated ? run.getNumber() : 0);
+  }
+
+  /**
+   * Values of range read at once.
+   */
+  static final class Page {
+    private final Map<Integer, String> values;
+    private final int next;
+
+    Page(Map<Integer, String> values, int next) {
+      this.values = values;
+      this.next = next;
+    }
+
+    /**
+     * Provides values read.
+     * @return Values by run number, newest first, with null value where run has no such parameter.
+     */
+    Map<Integer, String> getValues() {
+      return values;
+    }
+
+    boolean isTruncated() {
+      return next > 0;
+    }
+
+    /**
+     * Provides number of newest run, which wasn't read because range was truncated.
+     * @return Run number to pass as next range end or 0 if range was read completely.
+     */
+    int getNext() {
+      return next;
+    }
+  }
+}
@@ -0,0 +1,492 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.ParameterValue;
+import hudson.model.ParametersAction;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import hudson.util.AtomicFileWriter;
+import jenkins.util.SystemProperties;
+
+/**
+ * Compact per-job sidecar file of run number to parameter name and value, appended on every write done by
+ * this plugin, so parameter reads could be served without loading whole run.
+ * File is a log of tab separated lines, where later line wins, line with run number only drops that run and line
+ * with run number and name only drops that name, so sensitive value doesn't leave stale plain one behind.
+ * Log is compacted once most of its lines are overridden. Loaded indexes are kept in bounded cache,
+ * which drops index of job once it's renamed, moved or deleted.
+ * Index rebuilt from all runs is marked complete and from then on also gets parameters of every started run,
+ * so it could tell which run is latest one with some value without loading runs.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class ParameterIndex {
+
+  private static final Logger LOGGER = Logger.getLogger(ParameterIndex.class.getName());
+
+  static final String FILE_NAME = "parameter-index.txt";
+
+  /** Line marking index which covers all runs of job. */
+  private static final String COMPLETE = "*";
+
+  /** Whether index is maintained and reads are served from it when it has requested value. */
+  static boolean enabled = SystemProperties.getBoolean(
+      SetParameterValuePlugin.class.getName() + ".parameterIndex", true);
+
+  /** Maximum number of loaded job indexes kept in memory. */
+  static int cacheSize = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".parameterIndexCacheSize", 256);
+
+  /** Number of overridden lines above which index file is compacted, as long as they outnumber live ones. */
+  static int compactThreshold = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".parameterIndexCompactThreshold", 1024);
+
+  private static final Map<String, JobIndex> INDEXES = new LinkedHashMap<String, JobIndex>(16, 0.75f, true) {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, JobIndex> eldest) {
+      return size() > cacheSize;
+    }
+  };
+
+  private ParameterIndex() {
+  }
+
+  /**
+   * Looks value up in job's index.
+   * @param job Job.
+   * @param number Run number.
+   * @param name Parameter name.
+   * @return Indexed value or null if index doesn't have it.
+   */
+  static String lookup(Job<?, ?> job, int number, String name) {
+    if (!enabled) {
+      return null;
+    }
+    try {
+      return forJob(job).get(number, name);
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to read parameter index of " + job.getFullName(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Finds latest run of job having parameter with value, building complete index of job first if needed.
+   * Sensitive values aren't indexed, so they are never matched.
+   * @param job Job.
+   * @param name Parameter name.
+   * @param value Parameter value.
+   * @return Run number, 0 if no run has such value or null if index is disabled or couldn't be read.
+   */
+  static Integer latest(Job<?, ?> job, String name, String value) {
+    if (!enabled) {
+      return null;
+    }
+    try {
+      return forJob(job).latest(job, name, value);
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to read parameter index of " + job.getFullName(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Appends written values to index of run's job.
+   * @param run Updated run.
+   * @param values Written values.
+   */
+  static void record(Run<?, ?> run, List<ParameterValue> values) {
+    if (!enabled) {
+      // Index which misses writes would serve stale values once enabled again, so it's dropped instead
+      File file = new File(run.getParent().getRootDir(), FILE_NAME);
+      if (file.exists()) {
+        forJob(run.getParent()).delete();
+      }
+      return;
+    }
+    JobIndex index = forJob(run.getParent());
+    try {
+      index.append(run.getNumber(), values);
+    } catch (IOException e) {
+      // Stale index is worse than none, reads fall back to run
+      LOGGER.log(Level.WARNING, "Failed to update parameter index of " + run + ", dropping it", e);
+      index.delete();
+    }
+  }
+
+  /**
+   * Rewrites job's index from parameters of all its runs.
+   * @param job Job.
+   * @return Number of indexed runs.
+   * @throws IOException Possible exception on write.
+   */
+  static int rebuild(Job<?, ?> job) throws IOException {
+    return forJob(job).rebuild(job);
+  }
+
+  private static JobIndex forJob(Job<?, ?> job) {
+    synchronized (INDEXES) {
+      return INDEXES.computeIfAbsent(job.getFullName(), k -> new JobIndex(new File(job.getRootDir(), FILE_NAME)));
+    }
+  }
+
+  /**
+   * Forgets loaded indexes of item and all its descendants.
+   * @param fullName Item full name.
+   */
+  static void evict(String fullName) {
+    synchronized (INDEXES) {
+      INDEXES.keySet().removeIf(k -> k.equals(fullName) || k.startsWith(fullName + '/'));
+    }
+  }
+
+  static int cachedCount() {
+    synchronized (INDEXES) {
+      return INDEXES.size();
+    }
+  }
+
+  private static String escape(String s) {
+    StringBuilder sb = new StringBuilder(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '\\':
+          sb.append("\\\\");
+          break;
+        case '\t':
+          sb.append("\\t");
+          break;
+        case '\n':
+          sb.append("\\n");
+          break;
+        case '\r':
+          sb.append("\\r");
+          break;
+        default:
+          sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String unescape(CharSequence s) {
+    StringBuilder sb = new StringBuilder(s.length());
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '\\' && i + 1 < s.length()) {
+        char n = s.charAt(++i);
+        sb.append(n == 't' ? '\t' : n == 'n' ? '\n' : n == 'r' ? '\r' : n);
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.toString();
+  }
+
+  private static void writeLine(Writer w, int number, ParameterValue pv) throws IOException {
+    if (pv == null) {
+      return;
+    }
+    w.write(Integer.toString(number));
+    w.write('\t');
+    w.write(escape(pv.getName()));
+    if (!pv.isSensitive()) {
+      w.write('\t');
+      w.write(escape(String.valueOf(pv.getValue())));
+    }
+    // Sensitive value is written as tombstone, so reads fall back to run
+    w.write('\n');
+  }
+
+  private static void writeLine(Writer w, int number, String name, String value) throws IOException {
+    w.write(Integer.toString(number));
+    w.write('\t');
+    w.write(escape(name));
+    w.write('\t');
+    w.write(escape(value));
+    w.write('\n');
+  }
+
+  /**
+   * Index of single job, loaded lazily from file and kept in sync with own appends.
+   */
+  private static final class JobIndex {
+    private final File file;
+    private Map<Integer, Map<String, String>> entries;
+    private long loadedLength;
+    private long loadedModified;
+    /** Number of lines in file, which are overridden by later ones. */
+    private int overridden;
+    /** Whether file has entries of all runs of job. */
+    private boolean complete;
+
+    JobIndex(File file) {
+      this.file = file;
+    }
+
+    synchronized String get(int number, String name) throws IOException {
+      ensureLoaded();
+      Map<String, String> values = entries.get(number);
+      return values != null ? values.get(name) : null;
+    }
+
+    synchronized void append(int number, List<ParameterValue> values) throws IOException {
+      // Loaded first, so overridden lines are counted and file gets compacted
+      ensureLoaded();
+      try (Writer w = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+        for (ParameterValue pv : values) {
+          writeLine(w, number, pv);
+        }
+      }
+      Map<String, String> runValues = entries.computeIfAbsent(number, k -> new HashMap<>());
+      for (ParameterValue pv : values) {
+        if (pv == null) {
+          continue;
+        }
+        if (pv.isSensitive()) {
+          runValues.remove(pv.getName());
+          overridden++;
+        } else if (runValues.put(pv.getName(), String.valueOf(pv.getValue())) != null) {
+          overridden++;
+        }
+      }
+      markLoaded();
+      compactIfNeeded();
+    }
+
+    synchronized void drop(int number) throws IOException {
+      if (!file.exists()) {
+        return;
+      }
+      boolean inSync = isLoaded();
+      try (Writer w = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+        w.write(Integer.toString(number));
+        w.write('\n');
+      }
+      if (inSync) {
+        Map<String, String> removed = entries.remove(number);
+        overridden += 1 + (removed != null ? removed.size() : 0);
+        markLoaded();
+        compactIfNeeded();
+      } else {
+        entries = null;
+      }
+    }
+
+    synchronized void appendIfComplete(int number, List<ParameterValue> values) throws IOException {
+      ensureLoaded();
+      if (complete) {
+        append(number, values);
+      }
+    }
+
+    synchronized int latest(Job<?, ?> job, String name, String value) throws IOException {
+      ensureLoaded();
+      if (!complete) {
+        // Runs are loaded once here, afterwards index is kept complete by writes and started runs
+        rebuild(job);
+        ensureLoaded();
+      }
+      int latest = 0;
+      for (Map.Entry<Integer, Map<String, String>> run : entries.entrySet()) {
+        if (run.getKey() > latest && value.equals(run.getValue().get(name))) {
+          latest = run.getKey();
+        }
+      }
+      return latest;
+    }
+
+    synchronized int rebuild(Job<?, ?> job) throws IOException {
+      int count = 0;
+      AtomicFileWriter w = new AtomicFileWriter(file);
+      try {
+        w.write(COMPLETE);
+        w.write('\n');
+        for (Run<?, ?> run : job.getBuilds()) {
+          for (ParametersAction pa : run.getActions(ParametersAction.class)) {
+            for (ParameterValue pv : pa.getAllParameters()) {
+              writeLine(w, run.getNumber(), pv);
+            }
+          }
+          count++;
+        }
+        w.commit();
+      } finally {
+        w.abort();
+      }
+      entries = null;
+      return count;
+    }
+
+    synchronized void delete() {
+      entries = null;
+      if (file.exists() && !file.delete()) {
+        LOGGER.warning("Failed to delete parameter index " + file);
+      }
+    }
+
+    private boolean isLoaded() {
+      return entries != null && file.length() == loadedLength && file.lastModified() == loadedModified;
+    }
+
+    private void markLoaded() {
+      loadedLength = file.length();
+      loadedModified = file.lastModified();
+    }
+
+    private void ensureLoaded() throws IOException {
+      if (isLoaded()) {
+        return;
+      }
+      Map<Integer, Map<String, String>> loaded = new HashMap<>();
+      int lines = 0;
+      complete = false;
+      if (file.exists()) {
+        // Read through stream rather than mapped, as mapped file can't be replaced on compaction on Windows
+        try (BufferedReader r = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+          String line;
+          while ((line = r.readLine()) != null) {
+            if (COMPLETE.equals(line)) {
+              complete = true;
+            } else if (!line.isEmpty()) {
+              parseLine(line, loaded);
+              lines++;
+            }
+          }
+        }
+      }
+      entries = loaded;
+      overridden = lines - liveCount();
+      markLoaded();
+      compactIfNeeded();
+    }
+
+    private int liveCount() {
+      int live = 0;
+      for (Map<String, String> values : entries.values()) {
+        live += values.size();
+      }
+      return live;
+    }
+
+    /**
+     * Rewrites file with live entries only, once overridden lines dominate it.
+     */
+    private void compactIfNeeded() throws IOException {
+      if (overridden <= compactThreshold || overridden <= liveCount()) {
+        return;
+      }
+      AtomicFileWriter w = new AtomicFileWriter(file);
+      try {
+        if (complete) {
+          w.write(COMPLETE);
+          w.write('\n');
+        }
+        for (Map.Entry<Integer, Map<String, String>> run : entries.entrySet()) {
+          for (Map.Entry<String, String> value : run.getValue().entrySet()) {
+            writeLine(w, run.getKey(), value.getKey(), value.getValue());
+          }
+        }
+        w.commit();
+      } finally {
+        w.abort();
+      }
+      overridden = 0;
+      markLoaded();
+    }
+
+    private static void parseLine(String s, Map<Integer, Map<String, String>> loaded) {
+      int firstTab = s.indexOf('\t');
+      try {
+        if (firstTab < 0) {
+          loaded.remove(Integer.parseInt(s));
+          return;
+        }
+        int number = Integer.parseInt(s.substring(0, firstTab));
+        int secondTab = s.indexOf('\t', firstTab + 1);
+        if (secondTab < 0) {
+          Map<String, String> values = loaded.get(number);
+          if (values != null) {
+            values.remove(unescape(s.substring(firstTab + 1)));
+          }
+          return;
+        }
+        loaded.computeIfAbsent(number, k -> new HashMap<>())
+          .put(unescape(s.substring(firstTab + 1, secondTab)), unescape(s.substring(secondTab + 1)));
+      } catch (NumberFormatException e) {
+        LOGGER.log(Level.FINE, "Skipping malformed parameter index line: " + s, e);
+      }
+    }
+  }
+
+  /**
+   * Forgets loaded index of job once it's renamed, moved or deleted.
+   */
+  @Extension
+  public static final class ItemListenerImpl extends ItemListener {
+
+    @Override
+    public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+      evict(oldFullName);
+    }
+
+    @Override
+    public void onDeleted(Item item) {
+      evict(item.getFullName());
+    }
+  }
+
+  /**
+   * Adds started run to complete index of its job and drops deleted run from it.
+   */
+  @Extension
+  public static final class RunListenerImpl extends RunListener<Run<?, ?>> {
+
+    @Override
+    public void onStarted(Run<?, ?> run, TaskListener listener) {
+      ParametersAction pa = run.getAction(ParametersAction.class);
+      // Jobs which never had their index built aren't touched
+      if (!enabled || pa == null || !new File(run.getParent().getRootDir(), FILE_NAME).exists()) {
+        return;
+      }
+      JobIndex index = forJob(run.getParent());
+      try {
+        index.appendIfComplete(run.getNumber(), pa.getAllParameters());
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Failed to add " + run + " to parameter index, dropping it", e);
+        index.delete();
+      }
+    }
+
+    @Override
+    public void onDeleted(Run<?, ?> run) {
+      try {
+        forJob(run.getParent()).drop(run.getNumber());
+      } catch (IOException e) {
+        LOGGER.log(Level.WARNING, "Failed to drop " + run + " from parameter index", e);
+      }
+    }
+  }
+}
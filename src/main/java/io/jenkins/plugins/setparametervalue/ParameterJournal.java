@@ -0,0 +1,221 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.thoughtworks.xstream.io.xml.CompactWriter;
+
+import hudson.Extension;
+import hudson.model.ParameterValue;
+import hudson.model.ParametersAction;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+
+/**
+ * Optional persistence mode, where parameter updates are appended to small per-run journal instead of
+ * rewriting whole build.xml. First journaled update of run saves it once with {@link ParameterJournalAction},
+ * which replays journal on load. Journal is compacted into build.xml once run is finalized, after idle window
+ * or when it grows over size limit.
+ * Journal is a log of single line records, each one is parameter value written with run's XStream.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class ParameterJournal {
+
+  private static final Logger LOGGER = Logger.getLogger(ParameterJournal.class.getName());
+
+  static final String FILE_NAME = "parameter-journal.log";
+
+  /** Whether updates are journaled instead of saving whole run. */
+  static boolean enabled = SystemProperties.getBoolean(
+      SetParameterValuePlugin.class.getName() + ".journal", false);
+
+  /** Time in milliseconds without updates after which journal is compacted into build.xml. */
+  static int idleMillis = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".journalIdleMillis", 5 * 60 * 1000);
+
+  /** Journal size in bytes after which it's compacted right away. */
+  static int maxSize = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".journalMaxSize", 1024 * 1024);
+
+  private static final Map<Run<?, ?>, ScheduledFuture<?>> PENDING = new IdentityHashMap<>();
+
+  private ParameterJournal() {
+  }
+
+  /**
+   * Persists values already merged into run, must be called under run's lock.
+   * @param run Updated run.
+   * @param values Values which were merged.
+   * @throws IOException Possible exception on journal append or run save.
+   */
+  static void persist(Run<?, ?> run, List<ParameterValue> values) throws IOException {
+    File file = file(run);
+    if (run.getAction(ParameterJournalAction.class) == null) {
+      // Whatever is left from before last compaction is already in build.xml
+      if (file.exists() && !file.delete()) {
+        throw new IOException("Failed to delete stale parameter journal " + file);
+      }
+      run.addAction(new ParameterJournalAction());
+      run.save();
+      return;
+    }
+    try (FileOutputStream out = new FileOutputStream(file, true)) {
+      Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+      for (ParameterValue pv : values) {
+        w.write(toLine(pv));
+        w.write('\n');
+      }
+      w.flush();
+      out.getChannel().force(false);
+    }
+    if (file.length() > maxSize) {
+      compact(run);
+    } else {
+      scheduleCompaction(run);
+    }
+  }
+
+  /**
+   * Overlays journaled values on top of run's loaded parameters.
+   * @param run Loaded run.
+   */
+  static void replay(Run<?, ?> run) {
+    File file = file(run);
+    if (!file.exists()) {
+      return;
+    }
+    List<ParameterValue> values = new ArrayList<>();
+    try (BufferedReader r = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+        StandardCharsets.UTF_8))) {
+      String line;
+      while ((line = r.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        try {
+          values.add((ParameterValue) Run.XSTREAM2.fromXML(line));
+        } catch (RuntimeException e) {
+          // Torn record of interrupted append
+          LOGGER.log(Level.WARNING, "Skipping malformed parameter journal record of " + run, e);
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to replay parameter journal of " + run, e);
+      return;
+    }
+    if (!values.isEmpty()) {
+      run.addOrReplaceAction(ParameterUpdater.merge(run.getAction(ParametersAction.class), values));
+      scheduleCompaction(run);
+    }
+  }
+
+  /**
+   * Saves run with all journaled values and drops its journal.
+   * @param run Run to compact.
+   */
+  static void compact(Run<?, ?> run) {
+    cancel(run);
+    Lock lock = RunLocks.of(run);
+    lock.lock();
+    try {
+      ParameterJournalAction marker = run.getAction(ParameterJournalAction.class);
+      if (marker == null) {
+        return;
+      }
+      run.removeAction(marker);
+      try {
+        run.save();
+      } catch (IOException e) {
+        run.addAction(marker);
+        LOGGER.log(Level.WARNING, "Failed to compact parameter journal of " + run, e);
+        return;
+      }
+      File file = file(run);
+      if (file.exists() && !file.delete()) {
+        LOGGER.warning("Failed to delete compacted parameter journal " + file);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Compacts journals of all runs waiting for idle compaction.
+   */
+  static void compactAll() {
+    List<Run<?, ?>> runs;
+    synchronized (PENDING) {
+      runs = new ArrayList<>(PENDING.keySet());
+    }
+    for (Run<?, ?> run : runs) {
+      compact(run);
+    }
+  }
+
+  private static File file(Run<?, ?> run) {
+    return new File(run.getRootDir(), FILE_NAME);
+  }
+
+  private static String toLine(ParameterValue pv) {
+    StringWriter sw = new StringWriter();
+    Run.XSTREAM2.marshal(pv, new CompactWriter(sw));
+    // Compact writer doesn't break lines, so only line feeds inside values are left to escape
+    return sw.toString().replace("\n", "&#xa;");
+  }
+
+  private static void scheduleCompaction(Run<?, ?> run) {
+    synchronized (PENDING) {
+      ScheduledFuture<?> previous = PENDING.put(run,
+          Timer.get().schedule(() -> compact(run), idleMillis, TimeUnit.MILLISECONDS));
+      if (previous != null) {
+        previous.cancel(false);
+      }
+    }
+  }
+
+  private static void cancel(Run<?, ?> run) {
+    synchronized (PENDING) {
+      ScheduledFuture<?> future = PENDING.remove(run);
+      if (future != null) {
+        future.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Compacts journal once run is finalized and forgets it once run is deleted.
+   */
+  @Extension
+  public static final class RunListenerImpl extends RunListener<Run<?, ?>> {
+
+    @Override
+    public void onFinalized(Run<?, ?> run) {
+      compact(run);
+    }
+
+    @Override
+    public void onDeleted(Run<?, ?> run) {
+      cancel(run);
+    }
+  }
+}
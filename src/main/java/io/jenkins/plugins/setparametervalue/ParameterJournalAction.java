@@ -0,0 +1,37 @@
+package io.jenkins.plugins.setparametervalue;
+
+import hudson.model.Run;
+import jenkins.model.RunAction2;
+
+/**
+ * Invisible marker saved with run which has parameter journal, replays journal once run is loaded.
+ *
+ * @author Andrejus Chaliapinas
+ */
+public class ParameterJournalAction implements RunAction2 {
+
+  @Override
+  public String getIconFileName() {
+    return null;
+  }
+
+  @Override
+  public String getDisplayName() {
+    return null;
+  }
+
+  @Override
+  public String getUrlName() {
+    return null;
+  }
+
+  @Override
+  public void onAttached(Run<?, ?> r) {
+    // Journal of newly attached run is empty
+  }
+
+  @Override
+  public void onLoad(Run<?, ?> r) {
+    ParameterJournal.replay(r);
+  }
+}
@@ -0,0 +1,113 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hudson.Extension;
+import hudson.model.Job;
+import hudson.model.ParameterValue;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+/**
+ * Opt-in memoization of parameter values read by a build, so repeated reads of same job, run and parameter
+ * don't resolve run again. Memo lives as long as calling build runs and its entries are dropped
+ * once same parameter is written through {@link ParameterUpdater}. Entries are keyed on job's full name,
+ * same one writes are invalidated by.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class ParameterMemo {
+
+  private static final Map<Run<?, ?>, Map<String, String>> MEMOS = new WeakHashMap<>();
+
+  /** Incremented on every invalidating write, so value read before write isn't memoized after it. */
+  private static final AtomicLong GENERATION = new AtomicLong();
+
+  static {
+    ParameterChangeBus.register(ParameterMemo::onChange);
+  }
+
+  private ParameterMemo() {
+  }
+
+  /**
+   * Marks start of read, which result could be memoized.
+   * @return Generation to pass to {@link #put}.
+   */
+  static long begin() {
+    return GENERATION.get();
+  }
+
+  /**
+   * Gets memoized value.
+   * @param caller Build which reads.
+   * @param job Resolved job.
+   * @param run Run number.
+   * @param name Parameter name.
+   * @return Value or null if it isn't memoized.
+   */
+  static String get(Run<?, ?> caller, Job<?, ?> job, int run, String name) {
+    Map<String, String> memo;
+    synchronized (MEMOS) {
+      memo = MEMOS.get(caller);
+    }
+    return memo != null ? memo.get(key(job.getFullName(), run, name)) : null;
+  }
+
+  /**
+   * Memoizes value, unless some parameter was written since read began.
+   * @param caller Build which reads.
+   * @param job Resolved job.
+   * @param run Run number.
+   * @param name Parameter name.
+   * @param value Read value.
+   * @param generation Generation returned by {@link #begin} before read.
+   */
+  static void put(Run<?, ?> caller, Job<?, ?> job, int run, String name, String value, long generation) {
+    synchronized (MEMOS) {
+      if (GENERATION.get() != generation) {
+        return;
+      }
+      MEMOS.computeIfAbsent(caller, r -> new ConcurrentHashMap<>()).put(key(job.getFullName(), run, name), value);
+    }
+  }
+
+  static void forget(Run<?, ?> caller) {
+    synchronized (MEMOS) {
+      MEMOS.remove(caller);
+    }
+  }
+
+  private static void onChange(Run<?, ?> run, List<ParameterValue> values) {
+    String job = run.getParent().getFullName();
+    synchronized (MEMOS) {
+      GENERATION.incrementAndGet();
+      for (Map<String, String> memo : MEMOS.values()) {
+        for (ParameterValue pv : values) {
+          memo.remove(key(job, run.getNumber(), pv.getName()));
+        }
+      }
+    }
+  }
+
+  private static String key(String job, int run, String name) {
+    return job + '#' + run + '#' + name;
+  }
+
+  /**
+   * Drops memo of build once it completes.
+   */
+  @Extension
+  public static final class RunListenerImpl extends RunListener<Run<?, ?>> {
+
+    @Override
+    public void onCompleted(Run<?, ?> run, TaskListener listener) {
+      forget(run);
+    }
+  }
+}
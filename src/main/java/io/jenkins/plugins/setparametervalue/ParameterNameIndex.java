@@ -0,0 +1,63 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import hudson.model.ParameterValue;
+import hudson.model.ParametersAction;
+
+/**
+ * Hash index of parameter names defined for run, kept per parameters action instance.
+ * Each update replaces run's action, so index of stale action is never consulted again and gets collected.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class ParameterNameIndex {
+
+  private static final Map<ParametersAction, Set<String>> INDEX =
+      Collections.synchronizedMap(new WeakHashMap<ParametersAction, Set<String>>());
+
+  private ParameterNameIndex() {
+  }
+
+  /**
+   * Provides names of all parameters in action.
+   * @param pa Run's parameters.
+   * @return Unmodifiable set of names.
+   */
+  static Set<String> of(ParametersAction pa) {
+    Set<String> names = INDEX.get(pa);
+    if (names == null) {
+      List<ParameterValue> pvs = pa.getAllParameters();
+      Set<String> built = new HashSet<>(pvs.size() * 2);
+      for (ParameterValue pv : pvs) {
+        built.add(pv.getName());
+      }
+      names = Collections.unmodifiableSet(built);
+      INDEX.put(pa, names);
+    }
+    return names;
+  }
+
+  /**
+   * Finds all provided parameters which aren't defined for run.
+   * @param pa Run's parameters.
+   * @param provided Provided parameters.
+   * @return Names of undefined parameters in provided order, empty if all are defined.
+   */
+  static List<String> undefined(ParametersAction pa, List<Parameter> provided) {
+    Set<String> defined = of(pa);
+    List<String> undefined = new ArrayList<>();
+    for (Parameter p : provided) {
+      if (!defined.contains(p.getName())) {
+        undefined.add(p.getName());
+      }
+    }
+    return undefined;
+  }
+}
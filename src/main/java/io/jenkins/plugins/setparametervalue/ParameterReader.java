@@ -0,0 +1,79 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import hudson.model.ParameterValue;
+import hudson.model.ParametersAction;
+import hudson.model.Run;
+
+/**
+ * Read path shared by REST calls and pipeline steps to fetch run's parameter values.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class ParameterReader {
+
+  private ParameterReader() {
+  }
+
+  /**
+   * Finds parameter value by name.
+   * @param run Run to look into.
+   * @param name Parameter name.
+   * @return Parameter value or null if it's not found.
+   */
+  static ParameterValue find(Run<?, ?> run, String name) {
+    for (ParametersAction pa : run.getActions(ParametersAction.class)) {
+      ParameterValue pv = pa.getParameter(name);
+      if (pv != null && name.equals(pv.getName())) {
+        return pv;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Collects values of requested parameters with single scan over run's parameters.
+   * Sensitive parameters are never returned.
+   * @param run Run to look into.
+   * @param names Names to collect or null to collect all.
+   * @return Values by name in order of run's parameters, absent names are omitted.
+   */
+  static Map<String, String> values(Run<?, ?> run, Collection<String> names) {
+    return values(run, names, null);
+  }
+
+  /**
+   * Collects values of requested parameters with single scan over run's parameters.
+   * Sensitive parameters are never returned, their names are reported separately so caller could tell them
+   * from absent ones.
+   * @param run Run to look into.
+   * @param names Names to collect or null to collect all.
+   * @param sensitive Receives names of requested sensitive parameters, could be null.
+   * @return Values by name in order of run's parameters, absent and sensitive names are omitted.
+   */
+  static Map<String, String> values(Run<?, ?> run, Collection<String> names, Set<String> sensitive) {
+    Map<String, String> values = new LinkedHashMap<>();
+    Set<String> seen = new HashSet<>();
+    for (ParametersAction pa : run.getActions(ParametersAction.class)) {
+      for (ParameterValue pv : pa.getAllParameters()) {
+        if (pv == null || !seen.add(pv.getName())) {
+          continue;
+        }
+        if (names != null && !names.contains(pv.getName())) {
+          continue;
+        }
+        if (!pv.isSensitive()) {
+          values.put(pv.getName(), String.valueOf(pv.getValue()));
+        } else if (sensitive != null) {
+          sensitive.add(pv.getName());
+        }
+      }
+    }
+    return values;
+  }
+}
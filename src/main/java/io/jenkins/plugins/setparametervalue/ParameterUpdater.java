@@ -0,0 +1,246 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+
+import hudson.Util;
+import hudson.model.ParameterValue;
+import hudson.model.ParametersAction;
+import hudson.model.Run;
+
+/**
+ * Write path shared by REST calls and pipeline steps to update run's parameter values.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class ParameterUpdater {
+
+  /** Stands for value of parameter which isn't stored yet, so even null value counts as change. */
+  private static final Object MISSING = new Object();
+
+  private ParameterUpdater() {
+  }
+
+  /**
+   * Merges provided values into run's parameters and persists run once, possibly write-behind or journaled.
+   * @param run Run to update.
+   * @param values Values to set, later entries win for duplicate names.
+   * @return Number of values which were different from already stored ones.
+   * @throws IOException Possible exception on run save.
+   */
+  static int update(Run<?, ?> run, List<ParameterValue> values) throws IOException {
+    try {
+      return update(run, values, null).getChanged();
+    } catch (VersionMismatchException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Merges provided values into run's parameters only if they are still at expected version.
+   * Version is compared under same lock as merge, so mismatch leaves run and its file untouched.
+   * @param run Run to update.
+   * @param values Values to set, later entries win for duplicate names.
+   * @param expectedVersion Version returned by {@link #version} earlier or null to update unconditionally.
+   * @return Number of changed values and resulting version.
+   * @throws IOException Possible exception on run save.
+   * @throws VersionMismatchException If run's parameters were changed since expected version.
+   */
+  static Result update(Run<?, ?> run, List<ParameterValue> values, String expectedVersion)
+      throws IOException, VersionMismatchException {
+    List<ParameterValue> overrides = dedupe(values);
+    // Concurrent writers of same run would otherwise merge on top of same action and lose updates
+    Lock lock = RunLocks.of(run);
+    lock.lock();
+    try {
+      ParametersAction current = run.getAction(ParametersAction.class);
+      if (expectedVersion != null) {
+        String currentVersion = version(current);
+        if (!currentVersion.equals(expectedVersion)) {
+          throw new VersionMismatchException(expectedVersion, currentVersion);
+        }
+      }
+      int changed = countChanged(current, overrides);
+      return new Result(changed, apply(run, current, overrides));
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Merges several groups of values into run's parameters in one write, applying groups in order.
+   * Value of group counts as changed if it differs from the one left by stored parameters and earlier groups.
+   * @param run Run to update.
+   * @param groups Groups of values to set, later entries win for duplicate names.
+   * @return Number of changed values of each group.
+   * @throws IOException Possible exception on run save.
+   */
+  static int[] updateEach(Run<?, ?> run, List<List<ParameterValue>> groups) throws IOException {
+    List<ParameterValue> all = new ArrayList<>();
+    for (List<ParameterValue> group : groups) {
+      all.addAll(group);
+    }
+    List<ParameterValue> overrides = dedupe(all);
+    Lock lock = RunLocks.of(run);
+    lock.lock();
+    try {
+      ParametersAction current = run.getAction(ParametersAction.class);
+      int[] changed = new int[groups.size()];
+      Map<String, Object> written = new HashMap<>();
+      for (int i = 0; i < changed.length; i++) {
+        for (ParameterValue pv : dedupe(groups.get(i))) {
+          Object old;
+          if (written.containsKey(pv.getName())) {
+            old = written.get(pv.getName());
+          } else {
+            ParameterValue stored = current != null ? current.getParameter(pv.getName()) : null;
+            old = stored != null ? stored.getValue() : MISSING;
+          }
+          if (!Objects.equals(old, pv.getValue())) {
+            changed[i]++;
+          }
+          written.put(pv.getName(), pv.getValue());
+        }
+      }
+      apply(run, current, overrides);
+      return changed;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Replaces run's parameters action, persists run and notifies others, caller holds run's lock.
+   * @return Resulting version.
+   */
+  private static String apply(Run<?, ?> run, ParametersAction current, List<ParameterValue> overrides)
+      throws IOException {
+    ParametersAction updated = merge(current, overrides);
+    run.addOrReplaceAction(updated);
+    if (ParameterJournal.enabled) {
+      ParameterJournal.persist(run, overrides);
+    } else {
+      SaveScheduler.save(run);
+    }
+    ParameterIndex.record(run, overrides);
+    ParameterChangeBus.publish(run, overrides);
+    return version(updated);
+  }
+
+  /**
+   * Computes version of run's parameter set as digest of its names and values.
+   * Digest doesn't depend on parameters order. Sensitive values are left out, as published digest would
+   * otherwise let anyone who could read it test guesses offline, so change of such value alone keeps version.
+   * @param action Parameters action, could be null.
+   * @return Hex encoded version.
+   */
+  static String version(ParametersAction action) {
+    Map<String, String> sorted = new TreeMap<>();
+    if (action != null) {
+      for (ParameterValue pv : action.getAllParameters()) {
+        if (pv != null) {
+          sorted.put(pv.getName(), pv.isSensitive() ? "" : String.valueOf(pv.getValue()));
+        }
+      }
+    }
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    for (Map.Entry<String, String> e : sorted.entrySet()) {
+      // Length prefixes keep different splits of same characters apart
+      digest.update((e.getKey().length() + ":" + e.getKey() + e.getValue().length() + ":" + e.getValue())
+          .getBytes(StandardCharsets.UTF_8));
+    }
+    return Util.toHexString(digest.digest()).substring(0, 32);
+  }
+
+  /**
+   * Builds new action on top of current one with provided overrides applied.
+   * @param current Current action, could be null.
+   * @param overrides Values to apply.
+   * @return Merged action.
+   */
+  static ParametersAction merge(ParametersAction current, List<ParameterValue> overrides) {
+    if (current == null) {
+      return new ParametersAction(overrides);
+    }
+    return current.createUpdated(overrides);
+  }
+
+  /**
+   * Counts overrides which would change stored value.
+   * @param current Current action, could be null.
+   * @param overrides Values to apply.
+   * @return Number of changed values.
+   */
+  static int countChanged(ParametersAction current, List<ParameterValue> overrides) {
+    int changed = 0;
+    for (ParameterValue pv : overrides) {
+      ParameterValue old = current != null ? current.getParameter(pv.getName()) : null;
+      if (old == null || !Objects.equals(old.getValue(), pv.getValue())) {
+        changed++;
+      }
+    }
+    return changed;
+  }
+
+  private static List<ParameterValue> dedupe(List<ParameterValue> values) {
+    Map<String, ParameterValue> byName = new LinkedHashMap<>();
+    for (ParameterValue pv : values) {
+      byName.put(pv.getName(), pv);
+    }
+    return new ArrayList<>(byName.values());
+  }
+
+  /**
+   * Outcome of conditional update.
+   */
+  static final class Result {
+    private final int changed;
+    private final String version;
+
+    Result(int changed, String version) {
+      this.changed = changed;
+      this.version = version;
+    }
+
+    int getChanged() {
+      return changed;
+    }
+
+    String getVersion() {
+      return version;
+    }
+  }
+
+  /**
+   * Thrown when run's parameters were changed since version expected by caller.
+   */
+  static final class VersionMismatchException extends Exception {
+    private static final long serialVersionUID = 1L;
+
+    private final String currentVersion;
+
+    VersionMismatchException(String expectedVersion, String currentVersion) {
+      super(String.format(Messages.SetParameterValuePlugin_errors_versionMismatch(), expectedVersion, currentVersion));
+      this.currentVersion = currentVersion;
+    }
+
+    String getCurrentVersion() {
+      return currentVersion;
+    }
+  }
+}
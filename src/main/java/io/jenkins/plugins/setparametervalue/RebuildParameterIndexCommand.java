@@ -0,0 +1,39 @@
+package io.jenkins.plugins.setparametervalue;
+
+import org.kohsuke.args4j.Argument;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.cli.CLICommand;
+import hudson.model.Item;
+import hudson.model.Job;
+import jenkins.model.Jenkins;
+
+/**
+ * CLI command to rebuild job's parameter index from its runs when index went stale.
+ *
+ * @author Andrejus Chaliapinas
+ */
+@Extension
+public class RebuildParameterIndexCommand extends CLICommand {
+
+  @Argument(metaVar = "JOB", usage = "Full name of the job to rebuild parameter index for", required = true)
+  public String job;
+
+  @Override
+  public String getShortDescription() {
+    return Messages.RebuildParameterIndexCommand_ShortDescription();
+  }
+
+  @Override
+  protected int run() throws Exception {
+    Job<?, ?> jobObj = Jenkins.get().getItemByFullName(job, Job.class);
+    if (jobObj == null) {
+      throw new AbortException(String.format(Messages.SetParameterValuePlugin_errors_jobNotFound(), job));
+    }
+    jobObj.checkPermission(Item.CONFIGURE);
+    int count = ParameterIndex.rebuild(jobObj);
+    stdout.println(String.format("Rebuilt parameter index of job '%s' from %d runs", jobObj.getFullName(), count));
+    return 0;
+  }
+}
@@ -0,0 +1,133 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+import javax.servlet.http.HttpServletRequest;
+
+import jenkins.util.SystemProperties;
+import net.sf.json.JSONObject;
+
+/**
+ * Reads request bodies straight from servlet input stream with respect to declared charset and size limit.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class RequestBodyReader {
+
+  /** Maximum body size in bytes for single update request. */
+  static int maxBodySize = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".maxBodySize", 1024 * 1024);
+
+  /** Maximum body size in bytes for bulk update request. */
+  static int maxBulkBodySize = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".maxBulkBodySize", 64 * 1024 * 1024);
+
+  private static final int BUFFER_SIZE = 8192;
+
+  private RequestBodyReader() {
+  }
+
+  /**
+   * Parses request body as JSON object.
+   * @param req Request.
+   * @param maxSize Maximum allowed body size in bytes.
+   * @return Parsed JSON object.
+   * @throws IOException Possible exception on read, {@link TooLargeException} if body exceeds limit.
+   */
+  static JSONObject readJson(HttpServletRequest req, int maxSize) throws IOException {
+    int contentLength = req.getContentLength();
+    StringBuilder sb = new StringBuilder(contentLength > 0 && contentLength <= maxSize ? contentLength : BUFFER_SIZE);
+    char[] buf = new char[BUFFER_SIZE];
+    try (Reader reader = openReader(req, maxSize)) {
+      int read;
+      while ((read = reader.read(buf)) != -1) {
+        sb.append(buf, 0, read);
+      }
+    }
+    return JSONObject.fromObject(sb.toString());
+  }
+
+  /**
+   * Opens character reader over request body, which fails once more than maxSize bytes were read.
+   * @param req Request.
+   * @param maxSize Maximum allowed body size in bytes.
+   * @return Buffered reader.
+   * @throws IOException Possible exception on open, {@link TooLargeException} if declared length exceeds limit.
+   */
+  static BufferedReader openReader(HttpServletRequest req, int maxSize) throws IOException {
+    // Reject declared oversize payload before reading anything
+    if (req.getContentLength() > maxSize) {
+      throw new TooLargeException(maxSize);
+    }
+    Charset charset = StandardCharsets.UTF_8;
+    String encoding = req.getCharacterEncoding();
+    if (encoding != null && Charset.isSupported(encoding)) {
+      charset = Charset.forName(encoding);
+    }
+    return new BufferedReader(new InputStreamReader(new LimitedInputStream(req.getInputStream(), maxSize), charset),
+        BUFFER_SIZE);
+  }
+
+  /**
+   * Signals that request body exceeds allowed size.
+   */
+  static final class TooLargeException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    TooLargeException(int maxSize) {
+      super(String.format(Messages.SetParameterValuePlugin_errors_bodyTooLarge(), maxSize));
+    }
+  }
+
+  /**
+   * Input stream, which counts consumed bytes and fails after limit, so chunked bodies are bounded as well.
+   */
+  private static final class LimitedInputStream extends FilterInputStream {
+    private final int maxSize;
+    private long count;
+
+    LimitedInputStream(InputStream in, int maxSize) {
+      super(in);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        consumed(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        consumed(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      consumed(skipped);
+      return skipped;
+    }
+
+    private void consumed(long bytes) throws TooLargeException {
+      count += bytes;
+      if (count > maxSize) {
+        throw new TooLargeException(maxSize);
+      }
+    }
+  }
+}
@@ -0,0 +1,38 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import hudson.model.Run;
+import jenkins.util.SystemProperties;
+
+/**
+ * Striped locks keyed by job's run, so read-modify-write of same run is serialized,
+ * while writes to different runs mostly proceed in parallel.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class RunLocks {
+
+  private static final Lock[] STRIPES = new Lock[Math.max(1, SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".lockStripes", 64))];
+
+  static {
+    for (int i = 0; i < STRIPES.length; i++) {
+      STRIPES[i] = new ReentrantLock();
+    }
+  }
+
+  private RunLocks() {
+  }
+
+  /**
+   * Provides lock guarding parameters of job's run.
+   * @param run Run.
+   * @return Lock shared by all callers updating same run.
+   */
+  static Lock of(Run<?, ?> run) {
+    int hash = run.getParent().getFullName().hashCode() * 31 + run.getNumber();
+    return STRIPES[Math.floorMod(hash, STRIPES.length)];
+  }
+}
@@ -0,0 +1,360 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.ParameterDefinition;
+import hudson.model.ParameterValue;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.PermalinkProjectAction.Permalink;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.listeners.ItemListener;
+import hudson.model.listeners.RunListener;
+import jenkins.model.Jenkins;
+import jenkins.util.SystemProperties;
+
+/**
+ * Resolves jobs by full name through bounded cache of weak references, which is invalidated on job rename,
+ * move, update or delete. Runs are looked up by number through job's own map of runs, which is already indexed
+ * and is the only source that knows when runs were reloaded, so they aren't cached here.
+ * Besides run numbers, identifier could be permalink such as lastSuccessfulBuild, resolved through job's
+ * permalinks, or NAME=VALUE selector of latest run with such parameter value, resolved through cached pointers
+ * to run numbers. Pointers, including ones recording that no run matches, are moved by runs starting and
+ * by writes going through {@link ParameterUpdater}. Pointer misses are answered from job's
+ * {@link ParameterIndex}, runs are walked only when index is disabled. Sensitive parameters can't be selected
+ * by, so selector can't be used to confirm guessed secret.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class RunResolver {
+
+  /** Maximum number of cached jobs and separately of cached selector pointers. */
+  static int cacheSize = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".resolverCacheSize", 1024);
+
+  private static final Map<String, WeakReference<Job<?, ?>>> JOBS = new BoundedMap<>();
+  private static final Map<String, Integer> POINTERS = new BoundedMap<>();
+
+  /** Pointer to no run, cached for selector which matches none. */
+  private static final int NONE = 0;
+
+  /** Incremented on every pointer move, so negative result found before move isn't cached after it. */
+  private static final AtomicLong POINTER_GENERATION = new AtomicLong();
+
+  private static final AtomicLong JOB_HITS = new AtomicLong();
+  private static final AtomicLong JOB_MISSES = new AtomicLong();
+  private static final AtomicLong POINTER_HITS = new AtomicLong();
+  private static final AtomicLong POINTER_MISSES = new AtomicLong();
+
+  static {
+    ParameterChangeBus.register(RunResolver::movePointers);
+  }
+
+  private RunResolver() {
+  }
+
+  /**
+   * Resolves job by full name with same visibility rules as {@link Jenkins#getItemByFullName(String, Class)}.
+   * @param fullName Job full name.
+   * @return Job or null if it's not found or not visible for current user.
+   */
+  static Job<?, ?> getJob(String fullName) {
+    Job<?, ?> job = get(JOBS, fullName);
+    if (job != null) {
+      JOB_HITS.incrementAndGet();
+      return job.hasPermission(Item.READ) ? job : null;
+    }
+    JOB_MISSES.incrementAndGet();
+    job = Jenkins.get().getItemByFullName(fullName, Job.class);
+    if (job != null) {
+      put(JOBS, fullName, job);
+    }
+    return job;
+  }
+
+  /**
+   * Resolves job's run by number, permalink or NAME=VALUE selector, only selectors are served from cache
+   * of pointers.
+   * @param job Job.
+   * @param id Run identifier.
+   * @return Run or null if it's not found.
+   */
+  static Run<?, ?> getRun(Job<?, ?> job, String id) {
+    if (toNumber(id) == null) {
+      Permalink permalink = job.getPermalinks().get(id);
+      if (permalink != null) {
+        // Builtin permalinks keep their own cache of run numbers
+        return permalink.resolve(job);
+      }
+      int eq = id.indexOf('=');
+      if (eq > 0) {
+        return getLatestWhere(job, id.substring(0, eq), id.substring(eq + 1));
+      }
+    }
+    return job.getBuild(id);
+  }
+
+  /**
+   * Parses numeric run identifier.
+   * @param id Run identifier.
+   * @return Run number or null if identifier isn't numeric.
+   */
+  static Integer toNumber(String id) {
+    if (id == null || id.isEmpty() || id.length() > 9) {
+      return null;
+    }
+    for (int i = 0; i < id.length(); i++) {
+      if (!Character.isDigit(id.charAt(i))) {
+        return null;
+      }
+    }
+    return Integer.valueOf(id);
+  }
+
+  /**
+   * Checks whether identifier is run number, builtin permalink or NAME=VALUE selector.
+   * @param id Run identifier.
+   * @return Whether it's valid.
+   */
+  static boolean isValidId(String id) {
+    if (toNumber(id) != null || id.indexOf('=') > 0) {
+      return true;
+    }
+    for (Permalink permalink : Permalink.BUILTIN) {
+      if (permalink.getId().equals(id)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Provides cache counters.
+   * @return Counters by name.
+   */
+  static Map<String, Long> getStatistics() {
+    Map<String, Long> stats = new LinkedHashMap<>();
+    stats.put("jobHits", JOB_HITS.get());
+    stats.put("jobMisses", JOB_MISSES.get());
+    stats.put("pointerHits", POINTER_HITS.get());
+    stats.put("pointerMisses", POINTER_MISSES.get());
+    synchronized (JOBS) {
+      stats.put("jobEntries", (long) JOBS.size());
+    }
+    synchronized (POINTERS) {
+      stats.put("pointerEntries", (long) POINTERS.size());
+    }
+    return stats;
+  }
+
+  /**
+   * Drops all cached entries.
+   */
+  static void invalidateAll() {
+    synchronized (JOBS) {
+      JOBS.clear();
+    }
+    synchronized (POINTERS) {
+      POINTERS.clear();
+    }
+  }
+
+  /**
+   * Drops cached entries of item and all its descendants.
+   * @param fullName Item full name.
+   */
+  static void invalidateItem(String fullName) {
+    removeByPrefix(JOBS, fullName);
+    removeByPrefix(POINTERS, fullName);
+  }
+
+  private static void invalidateRun(Run<?, ?> run) {
+    String prefix = run.getParent().getFullName() + '#';
+    synchronized (POINTERS) {
+      POINTERS.entrySet().removeIf(e -> e.getKey().startsWith(prefix) && e.getValue() == run.getNumber());
+    }
+  }
+
+  private static Run<?, ?> getLatestWhere(Job<?, ?> job, String name, String value) {
+    if (isSensitive(job, name)) {
+      return null;
+    }
+    String key = runKey(job.getFullName(), name + '=' + value);
+    Integer number;
+    long generation;
+    synchronized (POINTERS) {
+      number = POINTERS.get(key);
+      generation = POINTER_GENERATION.get();
+    }
+    if (number != null) {
+      Run<?, ?> run = number == NONE ? null : getRun(job, String.valueOf(number));
+      if (run != null || number == NONE) {
+        POINTER_HITS.incrementAndGet();
+        return run;
+      }
+    }
+    POINTER_MISSES.incrementAndGet();
+    Integer indexed = ParameterIndex.latest(job, name, value);
+    Run<?, ?> run = indexed == null ? null : indexed == NONE ? null : getRun(job, String.valueOf(indexed));
+    if (indexed == null || indexed != NONE && run == null) {
+      run = walk(job, name, value);
+    }
+    synchronized (POINTERS) {
+      if (run != null) {
+        // Run which started or was written meanwhile could have moved pointer further
+        POINTERS.merge(key, run.getNumber(), Math::max);
+      } else if (POINTER_GENERATION.get() == generation) {
+        POINTERS.put(key, NONE);
+      }
+    }
+    return run;
+  }
+
+  private static Run<?, ?> walk(Job<?, ?> job, String name, String value) {
+    for (Run<?, ?> run = job.getLastBuild(); run != null; run = run.getPreviousBuild()) {
+      ParameterValue pv = ParameterReader.find(run, name);
+      if (pv != null && !pv.isSensitive() && value.equals(String.valueOf(pv.getValue()))) {
+        return run;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isSensitive(Job<?, ?> job, String name) {
+    ParametersDefinitionProperty property = job.getProperty(ParametersDefinitionProperty.class);
+    ParameterDefinition definition = property != null ? property.getParameterDefinition(name) : null;
+    ParameterValue defaultValue = definition != null ? definition.getDefaultParameterValue() : null;
+    return defaultValue != null && defaultValue.isSensitive();
+  }
+
+  /**
+   * Moves cached pointers of run's job to run for its values and drops pointers to run for other values.
+   * @param run Run.
+   * @param values Values of run.
+   */
+  private static void movePointers(Run<?, ?> run, List<ParameterValue> values) {
+    String job = run.getParent().getFullName();
+    synchronized (POINTERS) {
+      POINTER_GENERATION.incrementAndGet();
+      if (POINTERS.isEmpty()) {
+        return;
+      }
+      for (ParameterValue pv : values) {
+        String key = runKey(job, pv.getName() + '=' + pv.getValue());
+        String prefix = runKey(job, pv.getName() + '=');
+        // Latest run with previous value is now some older one, so it's looked up again on next use
+        POINTERS.entrySet().removeIf(e -> e.getValue() == run.getNumber() && e.getKey().startsWith(prefix)
+            && !e.getKey().equals(key));
+        POINTERS.computeIfPresent(key, (k, n) -> Math.max(n, run.getNumber()));
+      }
+    }
+  }
+
+  private static String runKey(String jobFullName, String id) {
+    return jobFullName + '#' + id;
+  }
+
+  private static <T> T get(Map<String, WeakReference<T>> cache, String key) {
+    synchronized (cache) {
+      WeakReference<T> ref = cache.get(key);
+      if (ref == null) {
+        return null;
+      }
+      T value = ref.get();
+      if (value == null) {
+        cache.remove(key);
+      }
+      return value;
+    }
+  }
+
+  private static <T> void put(Map<String, WeakReference<T>> cache, String key, T value) {
+    synchronized (cache) {
+      cache.put(key, new WeakReference<>(value));
+    }
+  }
+
+  private static void removeByPrefix(Map<String, ?> cache, String fullName) {
+    synchronized (cache) {
+      Iterator<String> it = cache.keySet().iterator();
+      while (it.hasNext()) {
+        String key = it.next();
+        if (key.equals(fullName) || key.startsWith(fullName + '/') || key.startsWith(fullName + '#')) {
+          it.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Access ordered map, which evicts least recently used entry above configured size.
+   */
+  private static final class BoundedMap<V> extends LinkedHashMap<String, V> {
+    private static final long serialVersionUID = 1L;
+
+    BoundedMap() {
+      super(16, 0.75f, true);
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+      return size() > cacheSize;
+    }
+  }
+
+  /**
+   * Invalidates cached jobs and pointers on rename, move, delete, update and on reload from disk.
+   */
+  @Extension
+  public static final class ItemListenerImpl extends ItemListener {
+
+    @Override
+    public void onLocationChanged(Item item, String oldFullName, String newFullName) {
+      invalidateItem(oldFullName);
+    }
+
+    @Override
+    public void onDeleted(Item item) {
+      invalidateItem(item.getFullName());
+    }
+
+    @Override
+    public void onUpdated(Item item) {
+      invalidateItem(item.getFullName());
+    }
+
+    @Override
+    public void onLoaded() {
+      invalidateAll();
+    }
+  }
+
+  /**
+   * Moves pointers to started run and drops pointers to run on its delete.
+   */
+  @Extension
+  public static final class RunListenerImpl extends RunListener<Run<?, ?>> {
+
+    @Override
+    public void onStarted(Run<?, ?> run, TaskListener listener) {
+      ParametersAction pa = run.getAction(ParametersAction.class);
+      if (pa != null) {
+        movePointers(run, pa.getParameters());
+      }
+    }
+
+    @Override
+    public void onDeleted(Run<?, ?> run) {
+      invalidateRun(run);
+    }
+  }
+}
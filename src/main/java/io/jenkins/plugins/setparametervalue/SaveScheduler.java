@@ -0,0 +1,112 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import jenkins.util.SystemProperties;
+import jenkins.util.Timer;
+
+/**
+ * Persists updated runs either right away or, when coalescing window is configured, once per window.
+ * Updated run stays referenced until it's saved, so reads within same JVM see new values immediately.
+ *
+ * @author Andrejus Chaliapinas
+ */
+final class SaveScheduler {
+
+  private static final Logger LOGGER = Logger.getLogger(SaveScheduler.class.getName());
+
+  /** Window in milliseconds to coalesce saves of same run within, 0 to save synchronously. */
+  static int coalesceMillis = SystemProperties.getInteger(
+      SetParameterValuePlugin.class.getName() + ".saveCoalesceMillis", 0);
+
+  private static final Map<Run<?, ?>, ScheduledFuture<?>> PENDING = new IdentityHashMap<>();
+
+  private SaveScheduler() {
+  }
+
+  /**
+   * Saves run or marks it dirty to be saved at the end of coalescing window.
+   * @param run Run to save.
+   * @throws IOException Possible exception on synchronous save.
+   */
+  static void save(Run<?, ?> run) throws IOException {
+    if (coalesceMillis <= 0) {
+      run.save();
+      return;
+    }
+    synchronized (PENDING) {
+      if (!PENDING.containsKey(run)) {
+        PENDING.put(run, Timer.get().schedule(() -> flush(run), coalesceMillis, TimeUnit.MILLISECONDS));
+      }
+    }
+  }
+
+  /**
+   * Saves run right away if it has pending save.
+   * @param run Run to flush.
+   */
+  static void flush(Run<?, ?> run) {
+    synchronized (PENDING) {
+      ScheduledFuture<?> future = PENDING.remove(run);
+      if (future == null) {
+        return;
+      }
+      future.cancel(false);
+    }
+    try {
+      run.save();
+    } catch (IOException e) {
+      LOGGER.log(Level.WARNING, "Failed to save run " + run, e);
+    }
+  }
+
+  /**
+   * Saves all runs with pending saves.
+   */
+  static void flushAll() {
+    List<Run<?, ?>> runs;
+    synchronized (PENDING) {
+      runs = new ArrayList<>(PENDING.keySet());
+    }
+    for (Run<?, ?> run : runs) {
+      flush(run);
+    }
+  }
+
+  private static void discard(Run<?, ?> run) {
+    synchronized (PENDING) {
+      ScheduledFuture<?> future = PENDING.remove(run);
+      if (future != null) {
+        future.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Flushes pending save once run is finalized and forgets it once run is deleted.
+   */
+  @Extension
+  public static final class RunListenerImpl extends RunListener<Run<?, ?>> {
+
+    @Override
+    public void onFinalized(Run<?, ?> run) {
+      flush(run);
+    }
+
+    @Override
+    public void onDeleted(Run<?, ?> run) {
+      discard(run);
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package io.jenkins.plugins.setparametervalue;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 
 import javax.servlet.ServletException;
@@ -13,18 +14,17 @@ import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
 import hudson.model.AbstractProject;
-import hudson.model.Action;
 import hudson.model.Job;
 import hudson.model.ParameterValue;
 import hudson.model.ParametersAction;
 import hudson.model.Result;
 import hudson.model.Run;
-import hudson.model.StringParameterValue;
 import hudson.model.TaskListener;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.Builder;
 import hudson.util.FormValidation;
-import jenkins.model.Jenkins;
+import io.jenkins.plugins.setparametervalue.OperationMetrics.EntryPoint;
+import io.jenkins.plugins.setparametervalue.OperationMetrics.Phase;
 import jenkins.tasks.SimpleBuildStep;
 
 /**
@@ -40,7 +40,7 @@ public class SetParameterValueBuilder extends Builder implements SimpleBuildStep
   private final String name;
   private final String value;
   private final String job;
-  private final int run;
+  private final String run;
 
   // TODO: expose later into JSON
   private boolean debug;
@@ -51,11 +51,11 @@ public class SetParameterValueBuilder extends Builder implements SimpleBuildStep
    * @param name Parameter name.
    * @param value Parameter value.
    * @param job Job.
-   * @param run Run.
+   * @param run Run number, permalink such as lastSuccessfulBuild or NAME=VALUE selector of latest run.
    */
   @SuppressWarnings({"checkstyle:parametername"})
   @DataBoundConstructor
-  public SetParameterValueBuilder(String _class, String name, String value, String job, int run) {
+  public SetParameterValueBuilder(String _class, String name, String value, String job, String run) {
     this._class = _class;
     this.name = name;
     this.value = value;
@@ -63,6 +63,21 @@ public class SetParameterValueBuilder extends Builder implements SimpleBuildStep
     this.run = run;
   }
 
+  /**
+   * Ctor with run number.
+   * @param _class Class name.
+   * @param name Parameter name.
+   * @param value Parameter value.
+   * @param job Job.
+   * @param run Run.
+   * @deprecated Use {@link #SetParameterValueBuilder(String, String, String, String, String)}.
+   */
+  @Deprecated
+  @SuppressWarnings({"checkstyle:parametername"})
+  public SetParameterValueBuilder(String _class, String name, String value, String job, int run) {
+    this(_class, name, value, job, String.valueOf(run));
+  }
+
   public String get_class() {
     return _class;
   }
@@ -79,20 +94,46 @@ public class SetParameterValueBuilder extends Builder implements SimpleBuildStep
     return job;
   }
 
-  public int getRun() {
+  public String getRun() {
     return run;
   }
 
   @Override
   public void perform(Run<?, ?> performrun, FilePath workspace, Launcher launcher, TaskListener listener)
       throws InterruptedException, IOException {
+    perform(performrun, listener);
+  }
+
+  /**
+   * Sets parameter value on behalf of freestyle build step or pipeline step execution.
+   * @param performrun Run which performs the step.
+   * @param listener Listener to log into.
+   * @throws IOException Possible exception on run save.
+   */
+  void perform(Run<?, ?> performrun, TaskListener listener) throws IOException {
+    long start = OperationMetrics.start();
+    try {
+      setValue(performrun, listener);
+    } finally {
+      OperationMetrics.record(EntryPoint.SET_STEP, Phase.TOTAL, start);
+    }
+  }
+
+  private void setValue(Run<?, ?> performrun, TaskListener listener) throws IOException {
     listener.getLogger().println("SetParameterValue with parameter: " + name + ", job: " + job
         + ", and job's run: " + run);
     if (debug) {
       listener.getLogger().println("performrun: " + performrun);
     }
+    if (run == null || run.isEmpty()) {
+      listener.getLogger().println("ERROR: " + Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingRunID());
+      performrun.setResult(Result.FAILURE);
+      return;
+    }
 
-    Job<?, ?> jobObj = (Job<?, ?>) Jenkins.get().getItemByFullName(job);
+    long phaseStart = OperationMetrics.start();
+    Job<?, ?> jobObj = RunResolver.getJob(job);
+    OperationMetrics.record(EntryPoint.SET_STEP, Phase.JOB_LOOKUP, phaseStart);
     if (jobObj == null) {
       listener.getLogger().println(String.format("ERROR: Specified job '%s' was not found!", job));
       performrun.setResult(Result.FAILURE);
@@ -101,7 +142,9 @@ public class SetParameterValueBuilder extends Builder implements SimpleBuildStep
     if (debug) {
       listener.getLogger().println("jobObj: " + jobObj);
     }
-    Run<?, ?> runObj = (Run<?, ?>) jobObj.getBuild(String.valueOf(run));
+    phaseStart = OperationMetrics.start();
+    Run<?, ?> runObj = RunResolver.getRun(jobObj, run);
+    OperationMetrics.record(EntryPoint.SET_STEP, Phase.RUN_LOOKUP, phaseStart);
     if (runObj == null) {
       listener.getLogger().println(String.format("ERROR: Specified job's run '%s' was not found!", run));
       performrun.setResult(Result.FAILURE);
@@ -110,13 +153,13 @@ public class SetParameterValueBuilder extends Builder implements SimpleBuildStep
     if (debug) {
       listener.getLogger().println("runObj: " + runObj);
     }
-    ParameterValue pv = new StringParameterValue(name, value);
+    ParameterValue pv = ParameterBinder.toValue(_class, name, value);
     // At the moment to prevent UI to show null in run parameters area
     // TODO: figure later if there is other way
     pv.setDescription("");
-    Action actionParams = new ParametersAction(pv);
-    runObj.addOrReplaceAction(actionParams);
-    runObj.save();
+    phaseStart = OperationMetrics.start();
+    ParameterUpdater.update(runObj, Collections.singletonList(pv));
+    OperationMetrics.record(EntryPoint.SET_STEP, Phase.SAVE, phaseStart);
     
     if (debug) {
       List<ParametersAction> l = runObj.getActions(ParametersAction.class);
@@ -161,7 +204,7 @@ public class SetParameterValueBuilder extends Builder implements SimpleBuildStep
     }
 
     /**
-     * Checks job run identifier to be numeric.
+     * Checks job run identifier to be numeric, permalink or NAME=VALUE selector.
      * @param value Run identifier to use.
      * @return Result as FormValidation.
      * @throws IOException Possible exception1.
@@ -172,10 +215,8 @@ public class SetParameterValueBuilder extends Builder implements SimpleBuildStep
       if (value.length() == 0) {
         return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingRunID());
       }
-      try {
-        Integer.parseInt(value);
-      } catch (NumberFormatException nfe) {
-        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_nonNumericRunID());
+      if (!RunResolver.isValidId(value)) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_invalidRunID());
       }
       return FormValidation.ok();
     }
@@ -1,16 +1,30 @@
 package io.jenkins.plugins.setparametervalue;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.inject.Singleton;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
-import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpServletResponse;
 
+import org.acegisecurity.Authentication;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.export.Exported;
@@ -21,15 +35,22 @@ import hudson.Extension;
 import hudson.Plugin;
 import hudson.PluginWrapper;
 import hudson.XmlFile;
-import hudson.model.Action;
 import hudson.model.Api;
+import hudson.model.ItemGroup;
 import hudson.model.Job;
 import hudson.model.ParameterValue;
 import hudson.model.ParametersAction;
 import hudson.model.Run;
-import hudson.model.StringParameterValue;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.DaemonThreadFactory;
 import hudson.util.HttpResponses;
+import hudson.util.NamingThreadFactory;
+import io.jenkins.plugins.setparametervalue.OperationMetrics.EntryPoint;
+import io.jenkins.plugins.setparametervalue.OperationMetrics.Phase;
 import jenkins.model.Jenkins;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONException;
 import net.sf.json.JSONObject;
 
 /**
@@ -44,6 +65,12 @@ public class SetParameterValuePlugin extends Plugin {
 
   private static final Logger LOGGER = Logger.getLogger(SetParameterValuePlugin.class.getName());
 
+  static final String NDJSON_CONTENT_TYPE = "application/x-ndjson;charset=UTF-8";
+
+  static final int SC_TOO_MANY_REQUESTS = 429;
+
+  private static final long CHANGE_KEEP_ALIVE_MILLIS = 15000;
+
   public Api getApi() {
     return new Api(this);
   }
@@ -56,6 +83,18 @@ public class SetParameterValuePlugin extends Plugin {
     super.postInitialize();
   }
 
+  @Override
+  public void stop() throws Exception {
+    if (LOGGER.isLoggable(Level.FINEST)) {
+      LOGGER.finest("stop");
+    }
+    // Don't lose queued and write-behind updates on shutdown
+    AsyncUpdates.shutdown();
+    SaveScheduler.flushAll();
+    ParameterJournal.compactAll();
+    super.stop();
+  }
+
   @Override
   protected XmlFile getConfigXml() {
     if (LOGGER.isLoggable(Level.FINEST)) {
@@ -80,13 +119,34 @@ public class SetParameterValuePlugin extends Plugin {
     return super.getWrapper();
   }
 
+  /**
+   * Provides operation counters and latency percentiles in microseconds by entry point and phase.
+   * @return Statistics by entry point and phase.
+   */
+  @Exported
+  public Map<String, Map<String, Map<String, Long>>> getMetrics() {
+    return OperationMetrics.getStatistics();
+  }
+
+  @Exported
+  public Map<String, Long> getResolverCache() {
+    return RunResolver.getStatistics();
+  }
+
+  /**
+   * Provides admission control limits, counters of admitted and rejected calls and number of calls in progress.
+   * @return Values by name.
+   */
   @Exported
-  public String getInformation() {
-    return "Plugin information";
+  public Map<String, Long> getAdmission() {
+    return AdmissionControl.getStatistics();
   }
 
   /**
    * Invokes set parameter value POST call.
+   * Responds with number of changed values and version of resulting parameter set, which is also sent as ETag.
+   * Update is conditional when version is provided by If-Match header or expectedVersion field,
+   * and is rejected with 409 if run's parameters were changed since then.
    * @param req Request.
    * @param rsp Response.
    * @throws IOException Possible excepttion1.
@@ -97,85 +157,780 @@ public class SetParameterValuePlugin extends Plugin {
     final Jenkins jenkins = Jenkins.get();
     // Protect from anonymous call 
     jenkins.checkPermission(Run.UPDATE);
+    if (!admit(req, rsp, false)) {
+      return;
+    }
+    long start = OperationMetrics.start();
     try {
-      String reqStr = httpServletRequestToString(req);
-      JSONObject json = JSONObject.fromObject(reqStr);
-      String jobStr = json.getString("job");
-      String runStr = json.getString("run");
-      LOGGER.info("SetParameterValue for job: " + jobStr
-          + ", and job's run: " + runStr);
-      Job job = (Job) jenkins.getItemByFullName(jobStr);
-      if (job == null) {
-        rsp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-        HttpResponses.errorJSON(String.format(Messages.SetParameterValuePlugin_errors_jobNotFound(), jobStr))
-          .generateResponse(req, rsp, null);
+      PreparedUpdate update = prepareUpdate(req, rsp, "SetParameterValue");
+      if (update == null) {
         return;
       }
-      Run run = (Run) job.getBuild(runStr);
-      if (run == null) {
-        rsp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-        HttpResponses.errorJSON(String.format(Messages.SetParameterValuePlugin_errors_runNotFound(), runStr))
-          .generateResponse(req, rsp, null);
+
+      // Single merged action and single save for whole request
+      ParameterUpdater.Result result;
+      long saveStart = OperationMetrics.start();
+      try {
+        result = ParameterUpdater.update(update.run, update.values, update.expectedVersion);
+        OperationMetrics.record(EntryPoint.REST, Phase.SAVE, saveStart);
+      } catch (ParameterUpdater.VersionMismatchException e) {
+        rsp.setStatus(HttpServletResponse.SC_CONFLICT);
+        rsp.setHeader("ETag", '"' + e.getCurrentVersion() + '"');
+        HttpResponses.errorJSON(e.getMessage()).generateResponse(req, rsp, null);
+        return;
+      }
+
+      rsp.setStatus(HttpServletResponse.SC_OK);
+      rsp.setHeader("ETag", '"' + result.getVersion() + '"');
+      HttpResponses.okJSON(new JSONObject().element("changed", result.getChanged())
+          .element("version", result.getVersion())).generateResponse(req, rsp, null);
+    } catch (IllegalStateException e) {
+      LOGGER.log(Level.SEVERE, "Set parameter value exception!", e);
+    } finally {
+      OperationMetrics.record(EntryPoint.REST, Phase.TOTAL, start);
+      AdmissionControl.release(false);
+    }
+  }
+
+  /**
+   * Invokes asynchronous set parameter value POST call.
+   * Request is validated right away, while update is queued to be applied by plugin's bounded executor.
+   * Responds with 202 and ticket id to poll {@link #doSetParameterValueStatus} with,
+   * or with 429 if queue is full. Expected version is checked when update is applied, and mismatch fails ticket
+   * with 409 status and current version.
+   * @param req Request.
+   * @param rsp Response.
+   * @throws IOException Possible exception1.
+   * @throws ServletException Possible exception2.
+   */
+  @RequirePOST
+  public void doSetParameterValueAsync(StaplerRequest req, StaplerResponse rsp)
+      throws IOException, ServletException {
+    Jenkins.get().checkPermission(Run.UPDATE);
+    if (!admit(req, rsp, false)) {
+      return;
+    }
+    try {
+      PreparedUpdate update = prepareUpdate(req, rsp, "SetParameterValueAsync");
+      if (update == null) {
+        return;
+      }
+      AsyncUpdates.Ticket ticket;
+      try {
+        ticket = AsyncUpdates.submit(update.job, update.run, update.values, update.expectedVersion);
+      } catch (RejectedExecutionException e) {
+        rsp.setStatus(SC_TOO_MANY_REQUESTS);
+        rsp.setHeader("Retry-After", "1");
+        HttpResponses.errorJSON(Messages.SetParameterValuePlugin_errors_queueFull()).generateResponse(req, rsp, null);
         return;
       }
+      rsp.setStatus(HttpServletResponse.SC_ACCEPTED);
+      HttpResponses.okJSON(ticket.toJson()).generateResponse(req, rsp, null);
+    } finally {
+      AdmissionControl.release(false);
+    }
+  }
+
+  /**
+   * Invokes asynchronous set parameter value status GET call.
+   * @param req Request with id of ticket returned by {@link #doSetParameterValueAsync}.
+   * @param rsp Response.
+   * @throws IOException Possible exception1.
+   * @throws ServletException Possible exception2.
+   */
+  public void doSetParameterValueStatus(StaplerRequest req, StaplerResponse rsp)
+      throws IOException, ServletException {
+    Jenkins.get().checkPermission(Jenkins.READ);
+    String id = req.getParameter("id");
+    AsyncUpdates.Ticket ticket = id != null ? AsyncUpdates.get(id) : null;
+    if (ticket == null) {
+      rsp.setStatus(HttpServletResponse.SC_NOT_FOUND);
+      HttpResponses.errorJSON(String.format(Messages.SetParameterValuePlugin_errors_ticketNotFound(), id))
+        .generateResponse(req, rsp, null);
+      return;
+    }
+    rsp.setStatus(HttpServletResponse.SC_OK);
+    HttpResponses.okJSON(ticket.toJson()).generateResponse(req, rsp, null);
+  }
 
-      ParametersAction pa = run.getAction(ParametersAction.class);
-      if (pa == null) {
+  /**
+   * Reads and validates single update request, writing error response if it's not valid.
+   * @param req Request.
+   * @param rsp Response.
+   * @param operation Operation name to log.
+   * @return Validated update or null if error response was written.
+   */
+  private PreparedUpdate prepareUpdate(StaplerRequest req, StaplerResponse rsp, String operation)
+      throws IOException, ServletException {
+    JSONObject json;
+    try {
+      json = RequestBodyReader.readJson(req, RequestBodyReader.maxBodySize);
+    } catch (RequestBodyReader.TooLargeException e) {
+      rsp.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+      HttpResponses.errorJSON(e.getMessage()).generateResponse(req, rsp, null);
+      return null;
+    }
+    String jobStr = json.getString("job");
+    String runStr = json.getString("run");
+    LOGGER.info(operation + " for job: " + jobStr
+        + ", and job's run: " + runStr);
+    long phaseStart = OperationMetrics.start();
+    Job<?, ?> job = RunResolver.getJob(jobStr);
+    OperationMetrics.record(EntryPoint.REST, Phase.JOB_LOOKUP, phaseStart);
+    if (job == null) {
+      rsp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+      HttpResponses.errorJSON(String.format(Messages.SetParameterValuePlugin_errors_jobNotFound(), jobStr))
+        .generateResponse(req, rsp, null);
+      return null;
+    }
+    phaseStart = OperationMetrics.start();
+    Run<?, ?> run = RunResolver.getRun(job, runStr);
+    OperationMetrics.record(EntryPoint.REST, Phase.RUN_LOOKUP, phaseStart);
+    if (run == null) {
+      rsp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+      HttpResponses.errorJSON(String.format(Messages.SetParameterValuePlugin_errors_runNotFound(), runStr))
+        .generateResponse(req, rsp, null);
+      return null;
+    }
+
+    phaseStart = OperationMetrics.start();
+    ParametersAction pa = run.getAction(ParametersAction.class);
+    if (pa == null) {
+      rsp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+      HttpResponses.errorJSON(String.format(Messages.SetParameterValuePlugin_errors_paramsUndefined(), jobStr))
+        .generateResponse(req, rsp, null);
+      return null;
+    }
+    List<Parameter> l = ParameterBinder.bind(json.getJSONArray("parameter"));
+
+    // Compare provided against defined parameters
+    List<String> undefined = ParameterNameIndex.undefined(pa, l);
+    if (!undefined.isEmpty()) {
+      OperationMetrics.record(EntryPoint.REST, Phase.VALIDATION, phaseStart);
+      rsp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+      HttpResponses.errorJSON(undefinedMessage(undefined, jobStr)).generateResponse(req, rsp, null);
+      return null;
+    }
+    List<ParameterValue> values = ParameterBinder.toValues(l);
+    OperationMetrics.record(EntryPoint.REST, Phase.VALIDATION, phaseStart);
+    String expectedVersion = json.optString("expectedVersion", null);
+    if (expectedVersion == null) {
+      expectedVersion = ifMatchVersion(req.getHeader("If-Match"));
+    }
+    return new PreparedUpdate(jobStr, run, values, expectedVersion);
+  }
+
+  /**
+   * Extracts version from If-Match header value.
+   * @param header Header value, could be null.
+   * @return Version or null if any version matches.
+   */
+  private static String ifMatchVersion(String header) {
+    if (header == null || header.trim().isEmpty() || "*".equals(header.trim())) {
+      return null;
+    }
+    String version = header.trim();
+    if (version.startsWith("W/")) {
+      version = version.substring(2);
+    }
+    if (version.length() >= 2 && version.startsWith("\"") && version.endsWith("\"")) {
+      version = version.substring(1, version.length() - 1);
+    }
+    return version;
+  }
+
+  /**
+   * Invokes bulk set parameter value POST call.
+   * Request body is newline delimited JSON, where each line is record with job, run and parameter array.
+   * Records targeting same job's run are applied together with single save and result for each record
+   * is streamed back as newline delimited JSON as soon as its run was processed.
+   * @param req Request.
+   * @param rsp Response.
+   * @throws IOException Possible exception1.
+   * @throws ServletException Possible exception2.
+   */
+  @RequirePOST
+  public void doBulkSetParameterValue(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+    final Jenkins jenkins = Jenkins.get();
+    // Protect from anonymous call
+    jenkins.checkPermission(Run.UPDATE);
+    if (!admit(req, rsp, true)) {
+      return;
+    }
+    try {
+      // Group records by job's run preserving order of first appearance
+      final Map<String, List<BulkRecord>> byRun = new LinkedHashMap<>();
+      final List<JSONObject> malformed = new ArrayList<>();
+      try (BufferedReader reader = RequestBodyReader.openReader(req, RequestBodyReader.maxBulkBodySize)) {
+        int index = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.trim().isEmpty()) {
+            continue;
+          }
+          BulkRecord record = new BulkRecord(index++);
+          try {
+            JSONObject json = JSONObject.fromObject(line);
+            record.job = json.getString("job");
+            record.run = json.getString("run");
+            record.parameters = ParameterBinder.bind(json.getJSONArray("parameter"));
+          } catch (JSONException e) {
+            malformed.add(record.error(e.getMessage()));
+            continue;
+          }
+          byRun.computeIfAbsent(record.job + '#' + record.run, k -> new ArrayList<>()).add(record);
+        }
+      } catch (RequestBodyReader.TooLargeException e) {
+        rsp.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        HttpResponses.errorJSON(e.getMessage()).generateResponse(req, rsp, null);
+        return;
+      }
+      LOGGER.info("BulkSetParameterValue for runs: " + byRun.size());
+
+      rsp.setStatus(HttpServletResponse.SC_OK);
+      rsp.setContentType(NDJSON_CONTENT_TYPE);
+      PrintWriter out = rsp.getWriter();
+      for (JSONObject result : malformed) {
+        writeRecord(out, result);
+      }
+      out.flush();
+      for (List<BulkRecord> records : byRun.values()) {
+        for (JSONObject result : applyBulkRecords(records)) {
+          writeRecord(out, result);
+        }
+        out.flush();
+      }
+    } finally {
+      AdmissionControl.release(true);
+    }
+  }
+
+  /**
+   * Invokes fan-out set parameter value POST call.
+   * Request body is JSON object with folder full name, empty for all jobs, optional recursive flag, parameter array
+   * and optional filters: from and to run numbers, fromTime and toTime in epoch milliseconds and result as
+   * single value or array. Jobs are updated in parallel, up to concurrency field limited by plugin's cap,
+   * on behalf of calling user. Progress record of each job is streamed back as newline delimited JSON
+   * as soon as job is done, followed by summary record.
+   * @param req Request.
+   * @param rsp Response.
+   * @throws IOException Possible exception1.
+   * @throws ServletException Possible exception2.
+   */
+  @RequirePOST
+  public void doFanOutSetParameterValue(StaplerRequest req, StaplerResponse rsp)
+      throws IOException, ServletException {
+    final Jenkins jenkins = Jenkins.get();
+    // Protect from anonymous call
+    jenkins.checkPermission(Run.UPDATE);
+    if (!admit(req, rsp, true)) {
+      return;
+    }
+    try {
+      JSONObject json;
+      FanOutUpdate fanOut;
+      try {
+        json = RequestBodyReader.readJson(req, RequestBodyReader.maxBodySize);
+        fanOut = FanOutUpdate.fromJson(json);
+      } catch (RequestBodyReader.TooLargeException e) {
+        rsp.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        HttpResponses.errorJSON(e.getMessage()).generateResponse(req, rsp, null);
+        return;
+      } catch (JSONException | IllegalArgumentException e) {
         rsp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-        HttpResponses.errorJSON(String.format(Messages.SetParameterValuePlugin_errors_paramsUndefined(), jobStr))
+        HttpResponses.errorJSON(e.getMessage()).generateResponse(req, rsp, null);
+        return;
+      }
+      String folder = json.optString("folder", "");
+      Object item = folder.isEmpty() ? jenkins : jenkins.getItemByFullName(folder);
+      if (!(item instanceof ItemGroup)) {
+        rsp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        HttpResponses.errorJSON(String.format(Messages.SetParameterValuePlugin_errors_folderNotFound(), folder))
           .generateResponse(req, rsp, null);
         return;
       }
-      List<ParameterValue> pvs = pa.getAllParameters();
-      List<Parameter> l = req.bindJSONToList(Parameter.class, json.getJSONArray("parameter"));
+      List<Job<?, ?>> jobs = FanOutUpdate.jobs((ItemGroup<?>) item, json.optBoolean("recursive", true));
+      int concurrency = Math.max(1, Math.min(json.optInt("concurrency", FanOutUpdate.maxConcurrency),
+          FanOutUpdate.maxConcurrency));
+      LOGGER.info("FanOutSetParameterValue for folder: " + folder + ", jobs: " + jobs.size()
+          + ", concurrency: " + concurrency);
 
-      // Compare provided against defined parameters
-      for (Parameter paramProvided : l) {
-        boolean found = false;
-        for (ParameterValue paramDefined : pvs) {
-          if (paramProvided.getName().equals(paramDefined.getName())) {
-            found = true;
-            break;
+      rsp.setStatus(HttpServletResponse.SC_OK);
+      rsp.setContentType(NDJSON_CONTENT_TYPE);
+      PrintWriter out = rsp.getWriter();
+      final Authentication auth = Jenkins.getAuthentication();
+      ExecutorService executor = Executors.newFixedThreadPool(concurrency,
+          new NamingThreadFactory(new DaemonThreadFactory(), "SetParameterValue fan-out"));
+      CompletionService<JSONObject> completion = new ExecutorCompletionService<>(executor);
+      int updated = 0;
+      int failed = 0;
+      List<Future<JSONObject>> futures = new ArrayList<>(jobs.size());
+      try {
+        for (Job<?, ?> job : jobs) {
+          futures.add(completion.submit(() -> {
+            try (ACLContext ctx = ACL.as(auth)) {
+              return fanOut.apply(job);
+            }
+          }));
+        }
+        for (int i = 0; i < jobs.size(); i++) {
+          JSONObject progress = completion.take().get();
+          updated += progress.getInt("updated");
+          if (!"ok".equals(progress.getString("status"))) {
+            failed++;
+          }
+          writeRecord(out, progress);
+          out.flush();
+          if (out.checkError()) {
+            // Client went away, so remaining jobs are stopped rather than updated unobserved
+            LOGGER.info("FanOutSetParameterValue client disconnected after " + (i + 1) + " of " + jobs.size()
+                + " jobs, cancelling the rest");
+            for (Future<JSONObject> future : futures) {
+              future.cancel(true);
+            }
+            return;
           }
         }
-        if (!found) {
-          rsp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
-          HttpResponses.errorJSON(String.format(Messages.SetParameterValuePlugin_errors_paramUndefinedForJob(),
-            paramProvided.getName(), jobStr))
-            .generateResponse(req, rsp, null);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException(e);
+      } catch (ExecutionException e) {
+        throw new IOException(e.getCause());
+      } finally {
+        executor.shutdownNow();
+      }
+      writeRecord(out, new JSONObject().element("status", "done").element("jobs", jobs.size())
+          .element("failed", failed).element("updated", updated));
+      out.flush();
+    } finally {
+      AdmissionControl.release(true);
+    }
+  }
+
+  /**
+   * Invokes parameter change stream GET call.
+   * Streams Server-Sent Events with job, run, name and value of each parameter written by this plugin,
+   * optionally only for jobs with full name equal to or under prefix query parameter. Values of sensitive
+   * parameters are left out. Stream ends after bounded time or number of events, so it doesn't hold request
+   * thread, and client reconnects with Last-Event-ID header or since query parameter to get changes made
+   * meanwhile. Stream ends with dropped event when client doesn't keep up with changes or resumes from event
+   * which is already forgotten, and responds with 429 when there are too many subscribers already.
+   * @param req Request.
+   * @param rsp Response.
+   * @throws IOException Possible exception1.
+   * @throws ServletException Possible exception2.
+   */
+  public void doParameterChanges(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+    Jenkins.get().checkPermission(Jenkins.READ);
+    String prefix = req.getParameter("prefix");
+    ParameterChangeBus.Subscriber subscriber = ParameterChangeBus.subscribe(prefix != null ? prefix : "",
+        Jenkins.getAuthentication());
+    if (subscriber == null) {
+      rsp.setStatus(SC_TOO_MANY_REQUESTS);
+      rsp.setHeader("Retry-After", "10");
+      HttpResponses.errorJSON(Messages.SetParameterValuePlugin_errors_tooManySubscribers())
+        .generateResponse(req, rsp, null);
+      return;
+    }
+    try {
+      rsp.setStatus(HttpServletResponse.SC_OK);
+      rsp.setContentType("text/event-stream;charset=UTF-8");
+      rsp.setHeader("Cache-Control", "no-cache");
+      PrintWriter out = rsp.getWriter();
+      out.write(": subscribed\n\n");
+      // Subscribed before replay, so changes made meanwhile are in subscriber's buffer and sent once
+      long lastSent = lastEventId(req);
+      if (lastSent >= 0) {
+        List<JSONObject> missed = ParameterChangeBus.since(lastSent, prefix != null ? prefix : "",
+            Jenkins.getAuthentication());
+        if (missed == null) {
+          out.write("event: dropped\ndata: {}\n\n");
+          out.flush();
           return;
         }
+        for (JSONObject event : missed) {
+          writeChange(out, event);
+          lastSent = event.getLong("id");
+        }
       }
+      out.flush();
+      long deadline = System.currentTimeMillis() + ParameterChangeBus.streamMaxMillis;
+      int sent = 0;
+      // Keep-alive comments let broken connection be noticed while there are no changes
+      while (!out.checkError() && sent < ParameterChangeBus.streamMaxEvents) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+          break;
+        }
+        if (subscriber.isDropped()) {
+          out.write("event: dropped\ndata: {}\n\n");
+          out.flush();
+          break;
+        }
+        JSONObject event = subscriber.poll(Math.min(CHANGE_KEEP_ALIVE_MILLIS, remaining));
+        if (event == null) {
+          out.write(": keep-alive\n\n");
+        } else if (event.getLong("id") > lastSent) {
+          writeChange(out, event);
+          lastSent = event.getLong("id");
+          sent++;
+        }
+        out.flush();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      subscriber.close();
+    }
+  }
 
-      for (Parameter p : l) {
-        ParameterValue pv = new StringParameterValue(p.getName(), p.getValue());
-        //          ParameterValue pv = new TextParameterValue(p.getName(), p.getValue());
-        Action actionParams = new ParametersAction(pv);
-        run.addOrReplaceAction(actionParams);
-        run.save();
+  /**
+   * Invokes get parameter values POST call.
+   * Request body is JSON object with runs array, where each entry has job, run and optional names array,
+   * all non-sensitive parameters are returned when names are absent. Requested names which aren't defined are
+   * listed as missing and sensitive ones as sensitive. Each job's run is resolved once per request
+   * and result for each entry is streamed back as newline delimited JSON.
+   * @param req Request.
+   * @param rsp Response.
+   * @throws IOException Possible exception1.
+   * @throws ServletException Possible exception2.
+   */
+  @RequirePOST
+  public void doGetParameterValues(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+    Jenkins.get().checkPermission(Jenkins.READ);
+    if (!admit(req, rsp, false)) {
+      return;
+    }
+    try {
+      // Group entries by job's run, so each one is resolved and scanned once
+      final Map<String, List<BulkRecord>> byRun = new LinkedHashMap<>();
+      try {
+        JSONArray requested = RequestBodyReader.readJson(req, RequestBodyReader.maxBodySize).getJSONArray("runs");
+        for (int i = 0; i < requested.size(); i++) {
+          JSONObject json = requested.getJSONObject(i);
+          BulkRecord record = new BulkRecord(i);
+          record.job = json.getString("job");
+          record.run = json.getString("run");
+          JSONArray names = json.optJSONArray("names");
+          if (names != null) {
+            record.names = new ArrayList<>(names.size());
+            for (int j = 0; j < names.size(); j++) {
+              record.names.add(names.getString(j));
+            }
+          }
+          byRun.computeIfAbsent(record.job + '#' + record.run, k -> new ArrayList<>()).add(record);
+        }
+      } catch (RequestBodyReader.TooLargeException e) {
+        rsp.setStatus(HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE);
+        HttpResponses.errorJSON(e.getMessage()).generateResponse(req, rsp, null);
+        return;
+      } catch (JSONException e) {
+        rsp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        HttpResponses.errorJSON(e.getMessage()).generateResponse(req, rsp, null);
+        return;
       }
 
       rsp.setStatus(HttpServletResponse.SC_OK);
-      HttpResponses.okJSON().generateResponse(req, rsp, null);
-    } catch (IllegalStateException e) {
-      LOGGER.log(Level.SEVERE, "Set parameter value exception!", e);
+      rsp.setContentType(NDJSON_CONTENT_TYPE);
+      PrintWriter out = rsp.getWriter();
+      for (List<BulkRecord> records : byRun.values()) {
+        for (JSONObject result : readBulkRecords(records)) {
+          writeRecord(out, result);
+        }
+        out.flush();
+      }
+    } finally {
+      AdmissionControl.release(false);
+    }
+  }
+
+  /**
+   * Invokes get parameter value history GET call.
+   * Query parameters are job and name, optionally limited by from and to run numbers and by last number of runs.
+   * Runs are walked from newest to oldest and walk stops as soon as range is exhausted. Range longer than
+   * plugin's cap of visited runs is returned partially with truncated flag set and next run number to pass as to
+   * in following call.
+   * @param req Request.
+   * @param rsp Response.
+   * @throws IOException Possible exception1.
+   * @throws ServletException Possible exception2.
+   */
+  public void doGetParameterValueHistory(StaplerRequest req, StaplerResponse rsp) throws IOException, ServletException {
+    Jenkins.get().checkPermission(Jenkins.READ);
+    if (!admit(req, rsp, false)) {
+      return;
+    }
+    try {
+      int from = 0;
+      int to = 0;
+      int last = 0;
+      String error = null;
+      String jobStr = req.getParameter("job");
+      String name = req.getParameter("name");
+      if (jobStr == null || jobStr.isEmpty()) {
+        error = Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingJobName();
+      } else if (name == null || name.isEmpty()) {
+        error = Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingParameterName();
+      } else {
+        try {
+          from = intParameter(req, "from");
+          to = intParameter(req, "to");
+          last = intParameter(req, "last");
+        } catch (NumberFormatException e) {
+          error = Messages.SetParameterValueBuilder_DescriptorImpl_errors_nonNumericRunID();
+        }
+      }
+      if (error != null) {
+        rsp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        HttpResponses.errorJSON(error).generateResponse(req, rsp, null);
+        return;
+      }
+      Job<?, ?> job = RunResolver.getJob(jobStr);
+      if (job == null) {
+        rsp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        HttpResponses.errorJSON(String.format(Messages.SetParameterValuePlugin_errors_jobNotFound(), jobStr))
+          .generateResponse(req, rsp, null);
+        return;
+      }
+
+      ParameterHistory.Page page = ParameterHistory.read(job, name, from, to, last);
+      JSONArray values = new JSONArray();
+      for (Map.Entry<Integer, String> e : page.getValues().entrySet()) {
+        JSONObject value = new JSONObject().element("run", e.getKey().intValue());
+        if (e.getValue() != null) {
+          value.element("value", e.getValue());
+        }
+        values.add(value);
+      }
+      JSONObject result = new JSONObject().element("job", jobStr).element("name", name).element("values", values)
+          .element("truncated", page.isTruncated());
+      if (page.isTruncated()) {
+        // Lets caller continue with to set to next run
+        result.element("next", page.getNext());
+      }
+      rsp.setStatus(HttpServletResponse.SC_OK);
+      HttpResponses.okJSON(result).generateResponse(req, rsp, null);
+    } finally {
+      AdmissionControl.release(false);
     }
   }
 
-  private String httpServletRequestToString(StaplerRequest request) throws IOException {
+  /**
+   * Admits call of current user or writes 429 response with Retry-After header.
+   * @param req Request.
+   * @param rsp Response.
+   * @param streaming Whether call is long running streaming one, which has its own cap.
+   * @return Whether call was admitted, in which case {@link AdmissionControl#release(boolean)} must follow.
+   */
+  private static boolean admit(StaplerRequest req, StaplerResponse rsp, boolean streaming)
+      throws IOException, ServletException {
+    long retryAfter = AdmissionControl.admit(Jenkins.getAuthentication().getName(), streaming);
+    if (retryAfter == 0) {
+      return true;
+    }
+    rsp.setStatus(SC_TOO_MANY_REQUESTS);
+    rsp.setHeader("Retry-After", String.valueOf(retryAfter));
+    HttpResponses.errorJSON(Messages.SetParameterValuePlugin_errors_tooManyRequests()).generateResponse(req, rsp, null);
+    return false;
+  }
 
-    ServletInputStream mServletInputStream = request.getInputStream();
-    byte[] httpInData = new byte[request.getContentLength()];
-    int retVal = -1;
-    StringBuilder stringBuilder = new StringBuilder();
+  private static int intParameter(StaplerRequest req, String name) {
+    String value = req.getParameter(name);
+    return value == null || value.isEmpty() ? 0 : Integer.parseInt(value);
+  }
 
-    while ((retVal = mServletInputStream.read(httpInData)) != -1) {
-      for (int i = 0; i < retVal; i++) {
-        stringBuilder.append(Character.toString((char) httpInData[i]));
+  private List<JSONObject> readBulkRecords(List<BulkRecord> records) {
+    final List<JSONObject> results = new ArrayList<>(records.size());
+    BulkRecord first = records.get(0);
+    Job<?, ?> job = RunResolver.getJob(first.job);
+    String error = null;
+    Run<?, ?> run = null;
+    if (job == null) {
+      error = String.format(Messages.SetParameterValuePlugin_errors_jobNotFound(), first.job);
+    } else {
+      run = RunResolver.getRun(job, first.run);
+      if (run == null) {
+        error = String.format(Messages.SetParameterValuePlugin_errors_runNotFound(), first.run);
+      }
+    }
+    if (error != null) {
+      for (BulkRecord record : records) {
+        results.add(record.error(error));
+      }
+      return results;
+    }
+
+    Set<String> sensitive = new HashSet<>();
+    Map<String, String> all = ParameterReader.values(run, null, sensitive);
+    // Lets caller send conditional update based on what it has read
+    String version = ParameterUpdater.version(run.getAction(ParametersAction.class));
+    for (BulkRecord record : records) {
+      if (record.names == null) {
+        results.add(record.ok().element("values", all).element("version", version));
+        continue;
+      }
+      Map<String, String> values = new LinkedHashMap<>();
+      List<String> missing = new ArrayList<>();
+      List<String> withheld = new ArrayList<>();
+      for (String name : record.names) {
+        String value = all.get(name);
+        if (value != null) {
+          values.put(name, value);
+        } else if (sensitive.contains(name)) {
+          withheld.add(name);
+        } else {
+          missing.add(name);
+        }
+      }
+      JSONObject result = record.ok().element("values", values).element("version", version);
+      if (!missing.isEmpty()) {
+        result.element("missing", missing);
+      }
+      if (!withheld.isEmpty()) {
+        result.element("sensitive", withheld);
+      }
+      results.add(result);
+    }
+    return results;
+  }
+
+  private List<JSONObject> applyBulkRecords(List<BulkRecord> records) {
+    final List<JSONObject> results = new ArrayList<>(records.size());
+    BulkRecord first = records.get(0);
+    Job<?, ?> job = RunResolver.getJob(first.job);
+    String error = null;
+    Run<?, ?> run = null;
+    ParametersAction pa = null;
+    if (job == null) {
+      error = String.format(Messages.SetParameterValuePlugin_errors_jobNotFound(), first.job);
+    } else {
+      run = RunResolver.getRun(job, first.run);
+      if (run == null) {
+        error = String.format(Messages.SetParameterValuePlugin_errors_runNotFound(), first.run);
+      } else {
+        pa = run.getAction(ParametersAction.class);
+        if (pa == null) {
+          error = String.format(Messages.SetParameterValuePlugin_errors_paramsUndefined(), first.job);
+        }
+      }
+    }
+    if (error != null) {
+      for (BulkRecord record : records) {
+        results.add(record.error(error));
       }
+      return results;
     }
 
-    return stringBuilder.toString();
+    List<BulkRecord> accepted = new ArrayList<>(records.size());
+    List<List<ParameterValue>> values = new ArrayList<>(records.size());
+    for (BulkRecord record : records) {
+      List<String> undefined = ParameterNameIndex.undefined(pa, record.parameters);
+      if (!undefined.isEmpty()) {
+        results.add(record.error(undefinedMessage(undefined, record.job)));
+        continue;
+      }
+      values.add(ParameterBinder.toValues(record.parameters));
+      accepted.add(record);
+    }
+    if (accepted.isEmpty()) {
+      return results;
+    }
+    try {
+      int[] changed = ParameterUpdater.updateEach(run, values);
+      for (int i = 0; i < changed.length; i++) {
+        results.add(accepted.get(i).ok().element("changed", changed[i]));
+      }
+    } catch (IOException e) {
+      LOGGER.log(Level.SEVERE, "Bulk set parameter value exception!", e);
+      for (BulkRecord record : accepted) {
+        results.add(record.error(e.getMessage()));
+      }
+    }
+    return results;
+  }
+
+  private static void writeChange(PrintWriter out, JSONObject event) {
+    out.write("id: " + event.getLong("id") + "\nevent: change\ndata: " + event + "\n\n");
+  }
+
+  /**
+   * Reads id of last change event client has seen, sent by reconnecting event source or as since parameter.
+   * @return Event id or -1 if client resumes nothing.
+   */
+  private static long lastEventId(StaplerRequest req) {
+    String id = req.getHeader("Last-Event-ID");
+    if (id == null || id.isEmpty()) {
+      id = req.getParameter("since");
+    }
+    try {
+      return id != null && !id.isEmpty() ? Long.parseLong(id.trim()) : -1L;
+    } catch (NumberFormatException e) {
+      return -1L;
+    }
+  }
+
+  private static void writeRecord(PrintWriter out, JSONObject result) {
+    out.write(result.toString());
+    out.write('\n');
+  }
+
+  private static String undefinedMessage(List<String> undefined, String job) {
+    if (undefined.size() == 1) {
+      return String.format(Messages.SetParameterValuePlugin_errors_paramUndefinedForJob(), undefined.get(0), job);
+    }
+    return String.format(Messages.SetParameterValuePlugin_errors_paramsUndefinedForJob(),
+        String.join("', '", undefined), job);
+  }
+
+  /**
+   * Validated single update request.
+   */
+  private static final class PreparedUpdate {
+    private final String job;
+    private final Run<?, ?> run;
+    private final List<ParameterValue> values;
+    private final String expectedVersion;
+
+    PreparedUpdate(String job, Run<?, ?> run, List<ParameterValue> values, String expectedVersion) {
+      this.job = job;
+      this.run = run;
+      this.values = values;
+      this.expectedVersion = expectedVersion;
+    }
+  }
+
+  /**
+   * Single record of bulk set or get request.
+   */
+  private static final class BulkRecord {
+    private final int index;
+    private String job;
+    private String run;
+    private List<Parameter> parameters;
+    private List<String> names;
+
+    BulkRecord(int index) {
+      this.index = index;
+    }
+
+    JSONObject ok() {
+      return result("ok");
+    }
+
+    JSONObject error(String message) {
+      return result("error").element("message", message);
+    }
+
+    private JSONObject result(String status) {
+      JSONObject json = new JSONObject().element("index", index);
+      if (job != null) {
+        json.element("job", job);
+      }
+      if (run != null) {
+        json.element("run", run);
+      }
+      return json.element("status", status);
+    }
   }
 
 }
@@ -0,0 +1,173 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.servlet.ServletException;
+
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.jenkinsci.plugins.workflow.steps.SynchronousNonBlockingStepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.util.FormValidation;
+
+/**
+ * Pipeline step to set parameter value, which does lookup and save off CPS VM thread.
+ * Takes same arguments as {@link SetParameterValueBuilder} and, unlike it, doesn't need node.
+ *
+ * @author Andrejus Chaliapinas
+ *
+ */
+public class SetParameterValueStep extends Step {
+
+  @SuppressWarnings({"checkstyle:membername"})
+  private final String _class;
+  private final String name;
+  private final String value;
+  private final String job;
+  private final String run;
+
+  /**
+   * Default ctor.
+   * @param _class Class name.
+   * @param name Parameter name.
+   * @param value Parameter value.
+   * @param job Job.
+   * @param run Run number, permalink such as lastSuccessfulBuild or NAME=VALUE selector of latest run.
+   */
+  @SuppressWarnings({"checkstyle:parametername"})
+  @DataBoundConstructor
+  public SetParameterValueStep(String _class, String name, String value, String job, Object run) {
+    this._class = _class;
+    this.name = name;
+    this.value = value;
+    this.job = job;
+    this.run = run != null ? String.valueOf(run) : null;
+  }
+
+  public String get_class() {
+    return _class;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  public String getJob() {
+    return job;
+  }
+
+  public String getRun() {
+    return run;
+  }
+
+  @Override
+  public StepExecution start(StepContext context) throws Exception {
+    if (run == null || run.isEmpty()) {
+      throw new AbortException(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingRunID());
+    }
+    return new Execution(this, context);
+  }
+
+  /**
+   * Execution, which runs same code as freestyle build step on background thread.
+   */
+  private static final class Execution extends SynchronousNonBlockingStepExecution<Void> {
+    private static final long serialVersionUID = 1L;
+
+    private final transient SetParameterValueStep step;
+
+    Execution(SetParameterValueStep step, StepContext context) {
+      super(context);
+      this.step = step;
+    }
+
+    @Override
+    protected Void run() throws Exception {
+      new SetParameterValueBuilder(step._class, step.name, step.value, step.job, step.run)
+          .perform(getContext().get(Run.class), getContext().get(TaskListener.class));
+      return null;
+    }
+  }
+
+  @Extension
+  public static final class DescriptorImpl extends StepDescriptor {
+
+    @Override
+    public Set<? extends Class<?>> getRequiredContext() {
+      return new HashSet<>(Arrays.asList(Run.class, TaskListener.class));
+    }
+
+    @Override
+    public String getFunctionName() {
+      return "setParameterValue";
+    }
+
+    @Override
+    public String getDisplayName() {
+      return Messages.SetParameterValueBuilder_DescriptorImpl_DisplayName();
+    }
+
+    /**
+     * Checks job name.
+     * @param value Job name to use.
+     * @return Result as FormValidation.
+     * @throws IOException Possible exception1.
+     * @throws ServletException Possible exception2.
+     */
+    public FormValidation doCheckJob(@QueryParameter String value)
+        throws IOException, ServletException {
+      if (value.length() == 0) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingJobName());
+      }
+      return FormValidation.ok();
+    }
+
+    /**
+     * Checks parameter name.
+     * @param value Parameter name to use.
+     * @return Result as FormValidation.
+     * @throws IOException Possible exception1.
+     * @throws ServletException Possible exception2.
+     */
+    public FormValidation doCheckName(@QueryParameter String value)
+        throws IOException, ServletException {
+      if (value.length() == 0) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingParameterName());
+      }
+      return FormValidation.ok();
+    }
+
+    /**
+     * Checks job run identifier to be numeric, permalink or NAME=VALUE selector.
+     * @param value Run identifier to use.
+     * @return Result as FormValidation.
+     * @throws IOException Possible exception1.
+     * @throws ServletException Possible exception2.
+     */
+    public FormValidation doCheckRun(@QueryParameter String value)
+        throws IOException, ServletException {
+      if (value.length() == 0) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingRunID());
+      }
+      if (!RunResolver.isValidId(value)) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_invalidRunID());
+      }
+      return FormValidation.ok();
+    }
+  }
+}
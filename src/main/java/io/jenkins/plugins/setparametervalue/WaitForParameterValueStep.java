@@ -0,0 +1,428 @@
+package io.jenkins.plugins.setparametervalue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import javax.servlet.ServletException;
+
+import org.acegisecurity.Authentication;
+import org.jenkinsci.plugins.workflow.steps.Step;
+import org.jenkinsci.plugins.workflow.steps.StepContext;
+import org.jenkinsci.plugins.workflow.steps.StepDescriptor;
+import org.jenkinsci.plugins.workflow.steps.StepExecution;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.QueryParameter;
+
+import hudson.AbortException;
+import hudson.Extension;
+import hudson.model.Item;
+import hudson.model.Job;
+import hudson.model.ParameterValue;
+import hudson.model.Queue;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.model.queue.Tasks;
+import hudson.security.ACL;
+import hudson.security.ACLContext;
+import hudson.util.FormValidation;
+import jenkins.util.Timer;
+
+/**
+ * Step to wait until parameter of specified job's run gets value matching predicate.
+ * Waiting execution holds no executor or thread, it's woken up by writes going through {@link ParameterUpdater}
+ * and checks current value again once controller restarts.
+ * Values are delivered only when waiting build could read target job, and sensitive parameters can't be waited for.
+ *
+ * @author Andrejus Chaliapinas
+ *
+ */
+public class WaitForParameterValueStep extends Step {
+
+  private final String name;
+  private final String job;
+  private final String run;
+  private String value;
+  private String pattern;
+  private int timeout;
+
+  /**
+   * Default ctor.
+   * @param name Parameter name.
+   * @param job Job.
+   * @param run Run number, permalink such as lastSuccessfulBuild or NAME=VALUE selector of latest run,
+   *     resolved once when step starts.
+   */
+  @DataBoundConstructor
+  public WaitForParameterValueStep(String name, String job, Object run) {
+    this.name = name;
+    this.job = job;
+    this.run = run != null ? String.valueOf(run) : null;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getJob() {
+    return job;
+  }
+
+  public String getRun() {
+    return run;
+  }
+
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Sets exact value to wait for.
+   * @param value Value.
+   */
+  @DataBoundSetter
+  public void setValue(String value) {
+    this.value = value;
+  }
+
+  public String getPattern() {
+    return pattern;
+  }
+
+  /**
+   * Sets regular expression, which whole value should match.
+   * @param pattern Regular expression.
+   */
+  @DataBoundSetter
+  public void setPattern(String pattern) {
+    this.pattern = pattern;
+  }
+
+  public int getTimeout() {
+    return timeout;
+  }
+
+  /**
+   * Sets time to wait in seconds, 0 to wait without limit.
+   * @param timeout Timeout in seconds.
+   */
+  @DataBoundSetter
+  public void setTimeout(int timeout) {
+    this.timeout = timeout;
+  }
+
+  @Override
+  public StepExecution start(StepContext context) throws Exception {
+    if (run == null || run.isEmpty()) {
+      throw new AbortException(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingRunID());
+    }
+    if (pattern != null) {
+      // Fail fast on malformed expression
+      Pattern.compile(pattern);
+    }
+    long deadline = timeout > 0 ? System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(timeout) : 0L;
+    return new Execution(this, deadline, context);
+  }
+
+  /**
+   * Asynchronous execution registered for changes of awaited parameter.
+   */
+  static final class Execution extends StepExecution {
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = Logger.getLogger(Execution.class.getName());
+
+    private static final Map<String, Set<Execution>> WAITERS = new ConcurrentHashMap<>();
+
+    static {
+      ParameterChangeBus.register(Execution::onChange);
+    }
+
+    private final String name;
+    private final String job;
+    /** Run identifier as given to step. */
+    private final String id;
+    private final String value;
+    private final String pattern;
+    private final long deadline;
+    /** Full name of job resolved at start, so writes through any spelling of job's path are matched. */
+    private String fullName;
+    /** Run number resolved at start, so selector doesn't move to other run while waiting. */
+    private int run;
+
+    private transient volatile AtomicBoolean done;
+    private transient volatile ScheduledFuture<?> timeoutTask;
+
+    Execution(WaitForParameterValueStep step, long deadline, StepContext context) {
+      super(context);
+      this.name = step.name;
+      this.job = step.job;
+      this.id = step.run;
+      this.value = step.value;
+      this.pattern = step.pattern;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public boolean start() throws Exception {
+      getContext().get(TaskListener.class).getLogger().println("WaitForParameterValue with parameter: " + name
+          + ", job: " + job + ", and job's run: " + id);
+      Integer number = RunResolver.toNumber(id);
+      Job<?, ?> jobObj;
+      try (ACLContext ctx = ACL.as(authentication())) {
+        jobObj = RunResolver.getJob(job);
+        if (jobObj != null && number == null) {
+          Run<?, ?> runObj = RunResolver.getRun(jobObj, id);
+          number = runObj != null ? runObj.getNumber() : null;
+        }
+      }
+      if (jobObj == null) {
+        throw new AbortException(String.format("Specified job '%s' was not found!", job));
+      }
+      if (number == null) {
+        throw new AbortException(String.format("Specified job's run '%s' was not found!", id));
+      }
+      fullName = jobObj.getFullName();
+      run = number;
+      await();
+      return false;
+    }
+
+    @Override
+    public void onResume() {
+      // Value could have been written while controller was down
+      await();
+    }
+
+    @Override
+    public void stop(Throwable cause) throws Exception {
+      fail(cause);
+    }
+
+    @Override
+    public String getStatus() {
+      return "waiting for parameter '" + name + "' of " + job + " #" + run;
+    }
+
+    private void await() {
+      done = new AtomicBoolean();
+      register();
+      if (deadline > 0) {
+        timeoutTask = Timer.get().schedule(this::timeOut, Math.max(0, deadline - System.currentTimeMillis()),
+            TimeUnit.MILLISECONDS);
+      }
+      // Registered before check, so write racing with it is still noticed
+      Timer.get().submit(this::checkCurrent);
+    }
+
+    private void checkCurrent() {
+      try (ACLContext ctx = ACL.as(authentication())) {
+        Job<?, ?> jobObj = RunResolver.getJob(fullName);
+        if (jobObj == null) {
+          // Job was deleted or isn't visible anymore after restart
+          fail(new AbortException(String.format("Specified job '%s' was not found!", job)));
+          return;
+        }
+        Run<?, ?> runObj = RunResolver.getRun(jobObj, String.valueOf(run));
+        ParameterValue pv = runObj != null ? ParameterReader.find(runObj, name) : null;
+        if (pv != null) {
+          check(pv);
+        }
+      } catch (RuntimeException e) {
+        LOGGER.log(Level.WARNING, "Failed to check parameter '" + name + "' of " + job + " #" + run, e);
+      }
+    }
+
+    private void onWrite(Run<?, ?> written, ParameterValue pv) {
+      // Written value is delivered only if waiting build could read it
+      if (written.getParent().getACL().hasPermission(authentication(), Item.READ)) {
+        check(pv);
+      }
+    }
+
+    private void check(ParameterValue pv) {
+      if (pv.isSensitive()) {
+        // Neither matched nor returned, so it can't end up in console or script variables
+        fail(new AbortException(String.format("Specified parameter '%s' is sensitive and can't be waited for!",
+            name)));
+        return;
+      }
+      String current = String.valueOf(pv.getValue());
+      if (!matches(current) || !finish()) {
+        return;
+      }
+      try {
+        getContext().get(TaskListener.class).getLogger().println("Parameter '" + name + "' has value: " + current);
+      } catch (Exception e) {
+        LOGGER.log(Level.FINE, "Failed to log awaited value", e);
+      }
+      getContext().onSuccess(current);
+    }
+
+    private void timeOut() {
+      fail(new AbortException(String.format("Timed out waiting for parameter '%s' of job '%s' "
+          + "and job's run '%s'!", name, job, run)));
+    }
+
+    private void fail(Throwable cause) {
+      if (finish()) {
+        getContext().onFailure(cause);
+      }
+    }
+
+    private boolean matches(String current) {
+      if (value != null) {
+        return value.equals(current);
+      }
+      if (pattern != null) {
+        return Pattern.matches(pattern, current);
+      }
+      return !current.isEmpty();
+    }
+
+    /**
+     * Marks execution finished and stops waiting.
+     * @return Whether this call finished it.
+     */
+    private boolean finish() {
+      AtomicBoolean d = done;
+      if (d == null || !d.compareAndSet(false, true)) {
+        return false;
+      }
+      unregister();
+      ScheduledFuture<?> task = timeoutTask;
+      if (task != null) {
+        task.cancel(false);
+      }
+      return true;
+    }
+
+    private void register() {
+      // Set is created and dropped under map's lock of key, so waiter isn't added to set being dropped
+      WAITERS.compute(key(fullName, run, name), (k, waiters) -> {
+        Set<Execution> set = waiters != null ? waiters : new CopyOnWriteArraySet<>();
+        set.add(this);
+        return set;
+      });
+    }
+
+    private void unregister() {
+      WAITERS.computeIfPresent(key(fullName, run, name), (k, waiters) -> {
+        waiters.remove(this);
+        return waiters.isEmpty() ? null : waiters;
+      });
+    }
+
+    private Authentication authentication() {
+      try {
+        Run<?, ?> current = getContext().get(Run.class);
+        if (current != null && current.getParent() instanceof Queue.Task) {
+          return Tasks.getAuthenticationOf((Queue.Task) current.getParent());
+        }
+      } catch (Exception e) {
+        LOGGER.log(Level.FINE, "Failed to get authentication of waiting run", e);
+      }
+      return ACL.SYSTEM;
+    }
+
+    private static void onChange(Run<?, ?> run, List<ParameterValue> values) {
+      for (ParameterValue pv : values) {
+        Set<Execution> waiters = WAITERS.get(key(run.getParent().getFullName(), run.getNumber(), pv.getName()));
+        if (waiters == null || waiters.isEmpty()) {
+          continue;
+        }
+        for (Execution execution : waiters) {
+          // Writer holds run's lock, so check permission and resume pipeline from other thread
+          Timer.get().submit(() -> execution.onWrite(run, pv));
+        }
+      }
+    }
+
+    static int waitingKeys() {
+      return WAITERS.size();
+    }
+
+    private static String key(String job, int run, String name) {
+      return job + '#' + run + '#' + name;
+    }
+  }
+
+  @Extension
+  public static final class DescriptorImpl extends StepDescriptor {
+
+    @Override
+    public Set<? extends Class<?>> getRequiredContext() {
+      return new HashSet<>(Arrays.asList(Run.class, TaskListener.class));
+    }
+
+    @Override
+    public String getFunctionName() {
+      return "waitForParameterValue";
+    }
+
+    @Override
+    public String getDisplayName() {
+      return Messages.WaitForParameterValueStep_DescriptorImpl_DisplayName();
+    }
+
+    /**
+     * Checks job name.
+     * @param value Job name to use.
+     * @return Result as FormValidation.
+     * @throws IOException Possible exception1.
+     * @throws ServletException Possible exception2.
+     */
+    public FormValidation doCheckJob(@QueryParameter String value)
+        throws IOException, ServletException {
+      if (value.length() == 0) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingJobName());
+      }
+      return FormValidation.ok();
+    }
+
+    /**
+     * Checks parameter name.
+     * @param value Parameter name to use.
+     * @return Result as FormValidation.
+     * @throws IOException Possible exception1.
+     * @throws ServletException Possible exception2.
+     */
+    public FormValidation doCheckName(@QueryParameter String value)
+        throws IOException, ServletException {
+      if (value.length() == 0) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingParameterName());
+      }
+      return FormValidation.ok();
+    }
+
+    /**
+     * Checks job run identifier to be numeric, permalink or NAME=VALUE selector.
+     * @param value Run identifier to use.
+     * @return Result as FormValidation.
+     * @throws IOException Possible exception1.
+     * @throws ServletException Possible exception2.
+     */
+    public FormValidation doCheckRun(@QueryParameter String value)
+        throws IOException, ServletException {
+      if (value.length() == 0) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingRunID());
+      }
+      if (!RunResolver.isValidId(value)) {
+        return FormValidation.error(Messages.SetParameterValueBuilder_DescriptorImpl_errors_invalidRunID());
+      }
+      return FormValidation.ok();
+    }
+  }
+}
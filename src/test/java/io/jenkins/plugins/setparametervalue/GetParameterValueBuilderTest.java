@@ -1,5 +1,10 @@
 package io.jenkins.plugins.setparametervalue;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
@@ -9,11 +14,15 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.JenkinsRule;
 
+import hudson.model.FreeStyleProject;
 import hudson.model.Label;
 import hudson.model.ParameterDefinition;
 import hudson.model.ParametersDefinitionProperty;
+import hudson.model.PasswordParameterDefinition;
 import hudson.model.Result;
 import hudson.model.StringParameterDefinition;
+import hudson.model.StringParameterValue;
+import hudson.model.queue.QueueTaskFuture;
 
 /**
  * Test cases to test scripted pipeline for get operation.
@@ -62,6 +71,271 @@ public class GetParameterValueBuilderTest {
     jenkins.assertLogContains(expectedString, completedBuild);
   }
 
+  @Test
+  public void testGetValuesScriptedPipeline() throws Exception {
+    String agentLabel = "my-agent";
+    jenkins.createOnlineSlave(Label.get(agentLabel));
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "test-scripted-pipeline");
+    ParameterDefinition paramDef = new StringParameterDefinition(name, "Foo1");
+    jobObj.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    String pipelineScript
+            = "node {\n"
+            + "  def values = getParameterValues(\n"
+            +    "'job' : '" + job + "',\n"
+            +    "'run' : " + run + ",\n"
+            +    "'names' : ['" + name + "', 'Absent'],\n"
+            +    "'missing' : 'DEFAULT',\n"
+            +    "'defaultValue' : 'none'\n"
+            +    ")\n"
+            +   "echo 'Foo value is: ' + values.get('" + name + "')\n"
+            +   "echo 'Absent value is: ' + values.get('Absent')\n"
+            + "}";
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    WorkflowRun completedBuild = jenkins.assertBuildStatusSuccess(jobObj.scheduleBuild2(0));
+    LOGGER.info("Run log: " + JenkinsRule.getLog(completedBuild));
+    jenkins.assertLogContains("Foo value is: Foo1", completedBuild);
+    jenkins.assertLogContains("Absent value is: none", completedBuild);
+  }
+
+  @Test
+  public void testGetScriptedPipelineReturnValueWithoutNode() throws Exception {
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "test-scripted-pipeline");
+    ParameterDefinition paramDef = new StringParameterDefinition(name, "Foo1");
+    jobObj.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    String pipelineScript
+            = "setParameterValue('name' : '" + name + "', 'value' : 'Foo2', 'job' : '" + job + "', "
+            + "'run' : " + run + ")\n"
+            + "def retValue = getParameterValue('name' : '" + name + "', 'job' : '" + job + "', 'run' : " + run + ")\n"
+            + "echo 'Returned value is: ' + retValue\n";
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    WorkflowRun completedBuild = jenkins.assertBuildStatusSuccess(jobObj.scheduleBuild2(0));
+    LOGGER.info("Run log: " + JenkinsRule.getLog(completedBuild));
+    jenkins.assertLogContains("Returned value is: Foo2", completedBuild);
+  }
+
+  @Test
+  public void testGetScriptedPipelinePermalinkRun() throws Exception {
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "test-scripted-pipeline");
+    ParameterDefinition paramDef = new StringParameterDefinition(name, "Foo1");
+    jobObj.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    String pipelineScript
+            = "setParameterValue('name' : '" + name + "', 'value' : 'Foo2', 'job' : '" + job + "', "
+            + "'run' : 'lastBuild')\n"
+            + "def retValue = getParameterValue('name' : '" + name + "', 'job' : '" + job + "', "
+            + "'run' : '" + name + "=Foo2')\n"
+            + "echo 'Returned value is: ' + retValue\n";
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    WorkflowRun completedBuild = jenkins.assertBuildStatusSuccess(jobObj.scheduleBuild2(0));
+    LOGGER.info("Run log: " + JenkinsRule.getLog(completedBuild));
+    jenkins.assertLogContains("Returned value is: Foo2", completedBuild);
+  }
+
+  @Test
+  public void testGetScriptedPipelineMemoized() throws Exception {
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "test-scripted-pipeline");
+    ParameterDefinition paramDef = new StringParameterDefinition(name, "Foo1");
+    jobObj.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    String getValue = "getParameterValue('name' : '" + name + "', 'job' : '" + job + "', 'run' : " + run + ", "
+            + "'memoize' : true, 'debug' : true)";
+    String pipelineScript
+            = "echo 'First value is: ' + " + getValue + "\n"
+            + "echo 'Second value is: ' + " + getValue + "\n"
+            + "setParameterValue('name' : '" + name + "', 'value' : 'Foo2', 'job' : '" + job + "', "
+            + "'run' : " + run + ")\n"
+            + "echo 'Third value is: ' + " + getValue + "\n";
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    WorkflowRun completedBuild = jenkins.assertBuildStatusSuccess(jobObj.scheduleBuild2(0));
+    LOGGER.info("Run log: " + JenkinsRule.getLog(completedBuild));
+    jenkins.assertLogContains("memoized: Foo1", completedBuild);
+    jenkins.assertLogContains("Second value is: Foo1", completedBuild);
+    jenkins.assertLogNotContains("memoized: Foo2", completedBuild);
+    jenkins.assertLogContains("Third value is: Foo2", completedBuild);
+  }
+
+  @Test
+  public void testGetScriptedPipelineMemoizedOtherSpelling() throws Exception {
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "test-scripted-pipeline");
+    ParameterDefinition paramDef = new StringParameterDefinition(name, "Foo1");
+    jobObj.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    // Read through path with leading slash, written through full name
+    String getValue = "getParameterValue('name' : '" + name + "', 'job' : '/" + job + "', 'run' : " + run + ", "
+            + "'memoize' : true, 'debug' : true)";
+    String pipelineScript
+            = "echo 'First value is: ' + " + getValue + "\n"
+            + "setParameterValue('name' : '" + name + "', 'value' : 'Foo2', 'job' : '" + job + "', "
+            + "'run' : " + run + ")\n"
+            + "echo 'Second value is: ' + " + getValue + "\n";
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    WorkflowRun completedBuild = jenkins.assertBuildStatusSuccess(jobObj.scheduleBuild2(0));
+    LOGGER.info("Run log: " + JenkinsRule.getLog(completedBuild));
+    jenkins.assertLogContains("First value is: Foo1", completedBuild);
+    jenkins.assertLogNotContains("memoized: Foo1", completedBuild);
+    jenkins.assertLogContains("Second value is: Foo2", completedBuild);
+  }
+
+  @Test
+  public void testWaitScriptedPipelineWokenBySet() throws Exception {
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "test-scripted-pipeline");
+    ParameterDefinition paramDef = new StringParameterDefinition(name, "Foo1");
+    jobObj.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    String pipelineScript
+            = "def retValue = waitForParameterValue('name' : '" + name + "', 'job' : '" + job + "', "
+            + "'run' : " + run + ", 'pattern' : 'Go.*', 'timeout' : 60)\n"
+            + "echo 'Awaited value is: ' + retValue\n";
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    QueueTaskFuture<WorkflowRun> future = jobObj.scheduleBuild2(0);
+    WorkflowRun runObj = future.waitForStart();
+    jenkins.waitForMessage("WaitForParameterValue with parameter", runObj);
+    ParameterUpdater.update(runObj, Collections.singletonList(new StringParameterValue(name, "Go1")));
+    WorkflowRun completedBuild = jenkins.assertBuildStatusSuccess(future);
+    LOGGER.info("Run log: " + JenkinsRule.getLog(completedBuild));
+    jenkins.assertLogContains("Awaited value is: Go1", completedBuild);
+  }
+
+  @Test
+  public void testWaitScriptedPipelineSelectorWokenBySet() throws Exception {
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "test-scripted-pipeline");
+    ParameterDefinition paramDef = new StringParameterDefinition(name, "Foo1");
+    jobObj.addProperty(new ParametersDefinitionProperty(paramDef));
+    int waitingKeys = WaitForParameterValueStep.Execution.waitingKeys();
+
+    String pipelineScript
+            = "def retValue = waitForParameterValue('name' : '" + name + "', 'job' : '" + job + "', "
+            + "'run' : 'lastBuild', 'value' : 'Go', 'timeout' : 60)\n"
+            + "echo 'Awaited value is: ' + retValue\n";
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    QueueTaskFuture<WorkflowRun> future = jobObj.scheduleBuild2(0);
+    WorkflowRun runObj = future.waitForStart();
+    jenkins.waitForMessage("WaitForParameterValue with parameter", runObj);
+    ParameterUpdater.update(runObj, Collections.singletonList(new StringParameterValue(name, "Go")));
+    WorkflowRun completedBuild = jenkins.assertBuildStatusSuccess(future);
+    LOGGER.info("Run log: " + JenkinsRule.getLog(completedBuild));
+    jenkins.assertLogContains("Awaited value is: Go", completedBuild);
+    assertThat("Finished wait leaves no key behind", WaitForParameterValueStep.Execution.waitingKeys(),
+        equalTo(waitingKeys));
+  }
+
+  @Test
+  public void testWaitScriptedPipelineUnknownJob() throws Exception {
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "test-scripted-pipeline");
+
+    String pipelineScript
+            = "waitForParameterValue('name' : '" + name + "', 'job' : 'absent-job', "
+            + "'run' : " + run + ", 'timeout' : 60)\n";
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    WorkflowRun failedBuild = jenkins.assertBuildStatus(Result.FAILURE, jobObj.scheduleBuild2(0));
+    LOGGER.info("Run log: " + JenkinsRule.getLog(failedBuild));
+    jenkins.assertLogContains("Specified job 'absent-job' was not found!", failedBuild);
+  }
+
+  @Test
+  public void testWaitScriptedPipelineSensitiveParameter() throws Exception {
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "test-scripted-pipeline");
+    ParameterDefinition paramDef = new PasswordParameterDefinition(name, "Secret1", null);
+    jobObj.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    String pipelineScript
+            = "waitForParameterValue('name' : '" + name + "', 'job' : '" + job + "', "
+            + "'run' : " + run + ", 'timeout' : 60)\n";
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    WorkflowRun failedBuild = jenkins.assertBuildStatus(Result.FAILURE, jobObj.scheduleBuild2(0));
+    LOGGER.info("Run log: " + JenkinsRule.getLog(failedBuild));
+    jenkins.assertLogContains("Specified parameter '" + name + "' is sensitive and can't be waited for!",
+        failedBuild);
+    jenkins.assertLogNotContains("Secret1", failedBuild);
+  }
+
+  @Test
+  public void testWaitScriptedPipelineTimeout() throws Exception {
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "test-scripted-pipeline");
+    ParameterDefinition paramDef = new StringParameterDefinition(name, "Foo1");
+    jobObj.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    String pipelineScript
+            = "waitForParameterValue('name' : '" + name + "', 'job' : '" + job + "', "
+            + "'run' : " + run + ", 'value' : 'Go', 'timeout' : 1)\n";
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    WorkflowRun failedBuild = jenkins.assertBuildStatus(Result.FAILURE, jobObj.scheduleBuild2(0));
+    LOGGER.info("Run log: " + JenkinsRule.getLog(failedBuild));
+    jenkins.assertLogContains("Timed out waiting for parameter '" + name + "'", failedBuild);
+  }
+
+  @Test
+  public void testGetScriptedPipelineMissingRun() throws Exception {
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "test-scripted-pipeline");
+    ParameterDefinition paramDef = new StringParameterDefinition(name, "Foo1");
+    jobObj.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    String pipelineScript
+            = "getParameterValue('name' : '" + name + "', 'job' : '" + job + "')\n";
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    WorkflowRun failedBuild = jenkins.assertBuildStatus(Result.FAILURE, jobObj.scheduleBuild2(0));
+    LOGGER.info("Run log: " + JenkinsRule.getLog(failedBuild));
+    jenkins.assertLogContains(Messages.SetParameterValueBuilder_DescriptorImpl_errors_missingRunID(), failedBuild);
+    jenkins.assertLogNotContains("run 'null'", failedBuild);
+  }
+
+  @Test
+  public void testGetValuesScriptedPipelineMissingParameter() throws Exception {
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "test-scripted-pipeline");
+    ParameterDefinition paramDef = new StringParameterDefinition(name, "Foo1");
+    jobObj.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    String pipelineScript
+            = "def values = getParameterValues('job' : '" + job + "', 'run' : " + run + ", "
+            + "'names' : ['" + name + "', 'Absent1', 'Absent2'])\n";
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    WorkflowRun failedBuild = jenkins.assertBuildStatus(Result.FAILURE, jobObj.scheduleBuild2(0));
+    LOGGER.info("Run log: " + JenkinsRule.getLog(failedBuild));
+    jenkins.assertLogContains("ERROR: Specified parameters 'Absent1', 'Absent2' were not found!", failedBuild);
+  }
+
+  @Test
+  public void testGetValuesScriptedPipelineSensitiveParameter() throws Exception {
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "test-scripted-pipeline");
+    ParameterDefinition paramDef1 = new StringParameterDefinition(name, "Foo1");
+    ParameterDefinition paramDef2 = new PasswordParameterDefinition("Password", "Secret1", null);
+    jobObj.addProperty(new ParametersDefinitionProperty(paramDef1, paramDef2));
+
+    String pipelineScript
+            = "def values = getParameterValues('job' : '" + job + "', 'run' : " + run + ", "
+            + "'names' : ['" + name + "', 'Password', 'Absent1'])\n";
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    WorkflowRun failedBuild = jenkins.assertBuildStatus(Result.FAILURE, jobObj.scheduleBuild2(0));
+    LOGGER.info("Run log: " + JenkinsRule.getLog(failedBuild));
+    jenkins.assertLogContains("ERROR: Specified parameters 'Password' are sensitive and can't be read!", failedBuild);
+    jenkins.assertLogNotContains("Secret1", failedBuild);
+  }
+
+  @Test
+  public void testGetHistoryScriptedPipelineTruncatedRange() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject("history");
+    project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition(name, "Foo1")));
+    jenkins.buildAndAssertSuccess(project);
+    jenkins.buildAndAssertSuccess(project);
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "test-scripted-pipeline");
+
+    String pipelineScript
+            = "def values = getParameterValueHistory('name' : '" + name + "', 'job' : 'history')\n";
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    int maxRuns = ParameterHistory.maxRuns;
+    ParameterHistory.maxRuns = 1;
+    try {
+      WorkflowRun failedBuild = jenkins.assertBuildStatus(Result.FAILURE, jobObj.scheduleBuild2(0));
+      LOGGER.info("Run log: " + JenkinsRule.getLog(failedBuild));
+      jenkins.assertLogContains("ERROR: Specified range of job's runs exceeds limit of 1 runs, "
+          + "narrow it with from, to or last, next run not read is 1!", failedBuild);
+    } finally {
+      ParameterHistory.maxRuns = maxRuns;
+    }
+  }
+
   @Test
   public void testGetScriptedPipelineMultilineincorrectJob() throws Exception {
     String agentLabel = "my-agent";
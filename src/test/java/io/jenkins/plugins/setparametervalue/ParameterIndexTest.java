@@ -0,0 +1,131 @@
+package io.jenkins.plugins.setparametervalue;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.cli.CLICommandInvoker;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.ParameterDefinition;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.PasswordParameterValue;
+import hudson.model.StringParameterDefinition;
+import hudson.model.StringParameterValue;
+
+/**
+ * Test cases to test per-job parameter index.
+ *
+ * @author Andrejus Chaliapinas
+ *
+ */
+public class ParameterIndexTest {
+
+  @Rule
+  public JenkinsRule jenkins = new JenkinsRule();
+
+  @Test
+  public void testIndexUpdatedOnWrite() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+    assertThat(ParameterIndex.lookup(project, build.getNumber(), "Foo"), nullValue());
+
+    ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue("Foo", "multi\nline\tvalue")));
+    assertThat(ParameterIndex.lookup(project, build.getNumber(), "Foo"), equalTo("multi\nline\tvalue"));
+
+    build.delete();
+    assertThat(ParameterIndex.lookup(project, build.getNumber(), "Foo"), nullValue());
+  }
+
+  @Test
+  public void testSensitiveValueDropsIndexedOne() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue("Foo", "plain")));
+    assertThat(ParameterIndex.lookup(project, build.getNumber(), "Foo"), equalTo("plain"));
+    ParameterUpdater.update(build, Collections.singletonList(new PasswordParameterValue("Foo", "secret")));
+    assertThat(ParameterIndex.lookup(project, build.getNumber(), "Foo"), nullValue());
+
+    // Tombstone is also honoured when index is loaded from file again
+    ParameterIndex.evict(project.getFullName());
+    assertThat(ParameterIndex.lookup(project, build.getNumber(), "Foo"), nullValue());
+    File file = new File(project.getRootDir(), ParameterIndex.FILE_NAME);
+    assertThat(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).contains("secret"),
+        equalTo(false));
+  }
+
+  @Test
+  public void testCompactionAndEviction() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    int compactThreshold = ParameterIndex.compactThreshold;
+    ParameterIndex.compactThreshold = 4;
+    try {
+      for (int i = 0; i < 20; i++) {
+        ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue("Foo", "Foo" + i)));
+      }
+    } finally {
+      ParameterIndex.compactThreshold = compactThreshold;
+    }
+    File file = new File(project.getRootDir(), ParameterIndex.FILE_NAME);
+    assertThat("Overridden lines are compacted", Files.readAllLines(file.toPath()).size() <= 6, equalTo(true));
+    assertThat(ParameterIndex.lookup(project, build.getNumber(), "Foo"), equalTo("Foo19"));
+
+    int cached = ParameterIndex.cachedCount();
+    project.delete();
+    assertThat(ParameterIndex.cachedCount(), equalTo(cached - 1));
+  }
+
+  @Test
+  public void testDisabledIndexIsNotWritten() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+    File file = new File(project.getRootDir(), ParameterIndex.FILE_NAME);
+
+    ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue("Foo", "Foo1")));
+    assertThat(file.exists(), equalTo(true));
+    ParameterIndex.enabled = false;
+    try {
+      ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue("Foo", "Foo2")));
+      assertThat("Index missing writes is dropped", file.exists(), equalTo(false));
+      ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue("Foo", "Foo3")));
+      assertThat(file.exists(), equalTo(false));
+    } finally {
+      ParameterIndex.enabled = true;
+    }
+    assertThat(ParameterIndex.lookup(project, build.getNumber(), "Foo"), nullValue());
+  }
+
+  @Test
+  public void testRebuildCommand() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo1");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+    assertThat(new File(project.getRootDir(), ParameterIndex.FILE_NAME).exists(), equalTo(false));
+
+    CLICommandInvoker.Result result = new CLICommandInvoker(jenkins, "rebuild-parameter-index")
+        .invokeWithArgs(project.getFullName());
+    assertThat(result, CLICommandInvoker.Matcher.succeeded());
+    assertThat(ParameterIndex.lookup(project, build.getNumber(), "Foo"), equalTo("Foo1"));
+  }
+}
@@ -0,0 +1,72 @@
+package io.jenkins.plugins.setparametervalue;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.ParameterDefinition;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.StringParameterDefinition;
+import hudson.model.StringParameterValue;
+
+/**
+ * Test cases to test journaled persistence of parameter updates.
+ *
+ * @author Andrejus Chaliapinas
+ *
+ */
+public class ParameterJournalTest {
+
+  @Rule
+  public JenkinsRule jenkins = new JenkinsRule();
+
+  @Before
+  public void enableJournal() {
+    ParameterJournal.enabled = true;
+  }
+
+  @After
+  public void disableJournal() {
+    ParameterJournal.enabled = false;
+  }
+
+  @Test
+  public void testReplayOnLoadAndCompaction() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo1");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+    File journal = new File(build.getRootDir(), ParameterJournal.FILE_NAME);
+    File buildXml = new File(build.getRootDir(), "build.xml");
+
+    // First update saves run once with journal marker, next ones are only appended
+    ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue("Foo", "Foo2")));
+    ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue("Foo", "multi\nFoo3")));
+    assertThat("Journal is written", journal.exists(), equalTo(true));
+    assertThat("Run isn't rewritten", FileUtils.readFileToString(buildXml).contains("Foo3"), equalTo(false));
+
+    // Simulate restart by loading run from disk again
+    project._getRuns().purgeCache();
+    FreeStyleBuild reloaded = project.getBuildByNumber(build.getNumber());
+    assertThat("Journal is replayed", reloaded.getAction(ParametersAction.class).getParameter("Foo").getValue(),
+        equalTo((Object) "multi\nFoo3"));
+
+    ParameterJournal.compact(reloaded);
+    assertThat("Journal is dropped", journal.exists(), equalTo(false));
+    assertThat("Run has compacted value", FileUtils.readFileToString(buildXml).contains("multi\nFoo3"),
+        equalTo(true));
+    assertThat("Marker is dropped", reloaded.getAction(ParameterJournalAction.class) == null, equalTo(true));
+  }
+}
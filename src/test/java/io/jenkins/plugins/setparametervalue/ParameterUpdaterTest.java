@@ -0,0 +1,136 @@
+package io.jenkins.plugins.setparametervalue;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.ParameterDefinition;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.PasswordParameterValue;
+import hudson.model.StringParameterDefinition;
+import hudson.model.StringParameterValue;
+import hudson.security.ACL;
+import net.sf.json.JSONObject;
+
+/**
+ * Test cases to test shared parameter write path.
+ *
+ * @author Andrejus Chaliapinas
+ *
+ */
+public class ParameterUpdaterTest {
+
+  @Rule
+  public JenkinsRule jenkins = new JenkinsRule();
+
+  @Test
+  public void testNoLostUpdatesUnderContention() throws Exception {
+    final int threads = 16;
+    final int updates = 50;
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    List<ParameterDefinition> paramDefs = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      paramDefs.add(new StringParameterDefinition("P" + i, "initial"));
+    }
+    project.addProperty(new ParametersDefinitionProperty(paramDefs));
+    final FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    // Each thread keeps rewriting own parameter of same run
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      final String name = "P" + i;
+      futures.add(executor.submit(() -> {
+        start.await();
+        for (int k = 0; k < updates; k++) {
+          ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue(name, name + "-" + k)));
+        }
+        return null;
+      }));
+    }
+    start.countDown();
+    for (Future<?> f : futures) {
+      f.get();
+    }
+    executor.shutdown();
+
+    ParametersAction pa = build.getAction(ParametersAction.class);
+    for (int i = 0; i < threads; i++) {
+      assertThat("Last update of P" + i + " is kept", pa.getParameter("P" + i).getValue(),
+          equalTo((Object) ("P" + i + "-" + (updates - 1))));
+    }
+  }
+
+  @Test
+  public void testVersionDoesNotRevealSensitiveValues() throws Exception {
+    String actual = ParameterUpdater.version(new ParametersAction(new StringParameterValue("Foo", "Foo"),
+        new PasswordParameterValue("Password", "Secret1")));
+    // Guessed password gives same version, so version can't be used to test guesses
+    String guessed = ParameterUpdater.version(new ParametersAction(new StringParameterValue("Foo", "Foo"),
+        new PasswordParameterValue("Password", "Guess1")));
+    String changed = ParameterUpdater.version(new ParametersAction(new StringParameterValue("Foo", "Foo2"),
+        new PasswordParameterValue("Password", "Secret1")));
+    assertThat("Sensitive value is left out", guessed, equalTo(actual));
+    assertThat("Other values are covered", changed.equals(actual), equalTo(false));
+  }
+
+  @Test
+  public void testChangesPublishedToSubscribers() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject("watched");
+    project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("Foo", "Foo")));
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    ParameterChangeBus.Subscriber watching = ParameterChangeBus.subscribe("watched", ACL.SYSTEM);
+    ParameterChangeBus.Subscriber other = ParameterChangeBus.subscribe("other", ACL.SYSTEM);
+    try {
+      ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue("Foo", "Foo2")));
+      JSONObject event = watching.poll(0);
+      assertThat("Job is sent", event.getString("job"), equalTo("watched"));
+      assertThat("Run is sent", event.getInt("run"), equalTo(build.getNumber()));
+      assertThat("Name is sent", event.getString("name"), equalTo("Foo"));
+      assertThat("Value is sent", event.getString("value"), equalTo("Foo2"));
+      assertThat("Other jobs are filtered out", other.poll(0), nullValue());
+    } finally {
+      watching.close();
+      other.close();
+    }
+  }
+
+  @Test
+  public void testSlowSubscriberDropped() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("Foo", "Foo")));
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    int bufferSize = ParameterChangeBus.bufferSize;
+    ParameterChangeBus.bufferSize = 2;
+    ParameterChangeBus.Subscriber subscriber = ParameterChangeBus.subscribe("", ACL.SYSTEM);
+    ParameterChangeBus.bufferSize = bufferSize;
+    try {
+      for (int k = 0; k < 3; k++) {
+        ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue("Foo", "Foo" + k)));
+      }
+      assertThat("Buffered events are kept", subscriber.poll(0).getString("value"), equalTo("Foo0"));
+      assertThat("Buffered events are kept", subscriber.poll(0).getString("value"), equalTo("Foo1"));
+      assertThat("Subscriber is dropped", subscriber.isDropped(), equalTo(true));
+    } finally {
+      subscriber.close();
+    }
+  }
+}
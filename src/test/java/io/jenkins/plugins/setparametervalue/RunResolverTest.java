@@ -0,0 +1,150 @@
+package io.jenkins.plugins.setparametervalue;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.PasswordParameterDefinition;
+import hudson.model.StringParameterDefinition;
+import hudson.model.Run;
+import hudson.model.StringParameterValue;
+import hudson.model.listeners.ItemListener;
+
+/**
+ * Test cases to test job and run resolution cache.
+ *
+ * @author Andrejus Chaliapinas
+ *
+ */
+public class RunResolverTest {
+
+  @Rule
+  public JenkinsRule jenkins = new JenkinsRule();
+
+  @Before
+  public void setUp() {
+    RunResolver.invalidateAll();
+  }
+
+  @Test
+  public void testCacheHit() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject("cached");
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    long jobHits = RunResolver.getStatistics().get("jobHits");
+    assertThat(RunResolver.getJob("cached"), sameInstance((Object) project));
+    assertThat(RunResolver.getRun(project, "1"), sameInstance((Object) build));
+    assertThat(RunResolver.getJob("cached"), sameInstance((Object) project));
+    assertThat(RunResolver.getRun(project, "1"), sameInstance((Object) build));
+    assertThat(RunResolver.getStatistics().get("jobHits"), equalTo(jobHits + 1));
+    assertThat(RunResolver.getStatistics().containsKey("runHits"), equalTo(false));
+  }
+
+  @Test
+  public void testInvalidationOnRenameAndDelete() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject("original");
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+    assertThat(RunResolver.getJob("original"), sameInstance((Object) project));
+    assertThat(RunResolver.getRun(project, "1"), sameInstance((Object) build));
+
+    project.renameTo("renamed");
+    assertThat(RunResolver.getJob("original"), nullValue());
+    assertThat(RunResolver.getJob("renamed"), sameInstance((Object) project));
+
+    build.delete();
+    assertThat(RunResolver.getRun(project, "1"), nullValue());
+
+    project.delete();
+    assertThat(RunResolver.getJob("renamed"), nullValue());
+  }
+
+  @Test
+  public void testStaleRunAfterReload() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject("reloaded");
+    project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("Foo", "A")));
+    FreeStyleBuild build = build(project, "A");
+    assertThat(RunResolver.getRun(project, "1"), sameInstance((Object) build));
+    assertThat(RunResolver.getRun(project, "Foo=A"), sameInstance((Object) build));
+
+    // Reloading builds from disk without any listener being told must not serve old instance
+    project.onLoad(project.getParent(), project.getName());
+    Run<?, ?> reloaded = project.getBuildByNumber(1);
+    assertThat(reloaded == build, equalTo(false));
+    assertThat(RunResolver.getRun(project, "1"), sameInstance((Object) reloaded));
+
+    long pointerMisses = RunResolver.getStatistics().get("pointerMisses");
+    ItemListener.fireOnUpdated(project);
+    assertThat(RunResolver.getRun(project, "Foo=A"), sameInstance((Object) reloaded));
+    assertThat(RunResolver.getStatistics().get("pointerMisses"), equalTo(pointerMisses + 1));
+  }
+
+  @Test
+  public void testSymbolicSelectors() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject("selected");
+    project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("Foo", "A")));
+    FreeStyleBuild first = build(project, "A");
+    FreeStyleBuild second = build(project, "B");
+    FreeStyleBuild third = build(project, "A");
+
+    assertThat(RunResolver.getRun(project, "lastBuild"), sameInstance((Object) third));
+    assertThat(RunResolver.getRun(project, "lastSuccessfulBuild"), sameInstance((Object) third));
+    assertThat(RunResolver.getRun(project, "Foo=A"), sameInstance((Object) third));
+    assertThat(RunResolver.getRun(project, "Foo=B"), sameInstance((Object) second));
+    long pointerHits = RunResolver.getStatistics().get("pointerHits");
+    assertThat(RunResolver.getRun(project, "Foo=A"), sameInstance((Object) third));
+    assertThat(RunResolver.getStatistics().get("pointerHits"), equalTo(pointerHits + 1));
+
+    // Older run written to same value doesn't move pointer back
+    ParameterUpdater.update(first, Collections.singletonList(new StringParameterValue("Foo", "B")));
+    assertThat(RunResolver.getRun(project, "Foo=B"), sameInstance((Object) second));
+    ParameterUpdater.update(third, Collections.singletonList(new StringParameterValue("Foo", "B")));
+    assertThat(RunResolver.getRun(project, "Foo=B"), sameInstance((Object) third));
+    assertThat(RunResolver.getRun(project, "Foo=A"), nullValue());
+
+    FreeStyleBuild fourth = build(project, "A");
+    assertThat(RunResolver.getRun(project, "Foo=A"), sameInstance((Object) fourth));
+    assertThat(RunResolver.getRun(project, "unknownBuild"), nullValue());
+  }
+
+  @Test
+  public void testSelectorMissCachedAndSensitiveRejected() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject("selectedOnce");
+    project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("Foo", "A"),
+        new PasswordParameterDefinition("Password", "Secret1", null)));
+    build(project, "A");
+
+    // Sensitive value can't be confirmed by selecting on it
+    assertThat(RunResolver.getRun(project, "Password=Secret1"), nullValue());
+
+    assertThat(RunResolver.getRun(project, "Foo=B"), nullValue());
+    File index = new File(project.getRootDir(), ParameterIndex.FILE_NAME);
+    assertThat("Miss is answered from index", index.exists(), equalTo(true));
+    long pointerHits = RunResolver.getStatistics().get("pointerHits");
+    assertThat(RunResolver.getRun(project, "Foo=B"), nullValue());
+    assertThat("Miss is cached", RunResolver.getStatistics().get("pointerHits"), equalTo(pointerHits + 1));
+
+    FreeStyleBuild second = build(project, "B");
+    assertThat(RunResolver.getRun(project, "Foo=B"), sameInstance((Object) second));
+    // Started run was added to index, so it's found after cache is dropped too
+    RunResolver.invalidateAll();
+    assertThat(RunResolver.getRun(project, "Foo=B"), sameInstance((Object) second));
+  }
+
+  private FreeStyleBuild build(FreeStyleProject project, String value) throws Exception {
+    return jenkins.assertBuildStatusSuccess(project.scheduleBuild2(0,
+        new ParametersAction(new StringParameterValue("Foo", value))));
+  }
+}
@@ -3,8 +3,13 @@ package io.jenkins.plugins.setparametervalue;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 
+import java.io.File;
+import java.util.Collections;
+
+import org.apache.commons.io.FileUtils;
 import org.apache.http.HttpHeaders;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -19,21 +24,28 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.jvnet.hudson.test.JenkinsRule;
 
+import com.cloudbees.hudson.plugins.folder.Folder;
 import com.gargoylesoftware.htmlunit.util.NameValuePair;
 import com.google.common.base.Charsets;
 
+import hudson.model.BooleanParameterDefinition;
+import hudson.model.BooleanParameterValue;
 import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
 import hudson.model.Hudson;
 import hudson.model.Label;
 import hudson.model.ParameterDefinition;
+import hudson.model.ParametersAction;
 import hudson.model.ParametersDefinitionProperty;
 import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.StringParameterDefinition;
+import hudson.model.StringParameterValue;
+import hudson.model.TextParameterValue;
 import hudson.security.HudsonPrivateSecurityRealm;
 import hudson.security.ProjectMatrixAuthorizationStrategy;
 import jenkins.model.Jenkins;
+import net.sf.json.JSONObject;
 
 /**
  * Test cases to test REST POST calls as well as scripted pipeline.
@@ -114,7 +126,9 @@ public class SetParameterValueBuilderTest {
     CloseableHttpClient client = HttpClients.createDefault();
     CloseableHttpResponse response = client.execute(httpPost);
     assertThat("Status is 200", response.getStatusLine().getStatusCode(), equalTo(200));
-    LOGGER.info("testPostCall Response: " + EntityUtils.toString(response.getEntity(), Charsets.UTF_8));
+    String responseStr = EntityUtils.toString(response.getEntity(), Charsets.UTF_8);
+    LOGGER.info("testPostCall Response: " + responseStr);
+    jenkins.assertStringContains(responseStr, "\"changed\":1");
     String buildUrlPretty = "job/" + project.getName() + "/" + build.getNumber() + "/api/json?pretty=true";
     LOGGER.info("testPostCall build JSON: " + jenkins.getJSON(buildUrlPretty).getContentAsString());
     String buildUrl = "job/" + project.getName() + "/" + build.getNumber() + "/api/json";
@@ -123,6 +137,270 @@ public class SetParameterValueBuilderTest {
     client.close();
   }
 
+  @Test
+  public void testPostCallExpectedVersion() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+    String version = ParameterUpdater.version(build.getAction(ParametersAction.class));
+
+    String setValueUrl = "plugin/set-parameter-value/setParameterValue";
+    String payload =
+        "{\"parameter\":[{\"name\":\"Foo\", \"value\":\"Foo3\"}], "
+        + "\"job\":\"" + project.getName() + "\", "
+        + "\"run\":\"" + build.getNumber() + "\"}";
+
+    NameValuePair crumb = getCrumbHeaderNvp();
+    CloseableHttpClient client = HttpClients.createDefault();
+
+    HttpPost httpPost = new HttpPost(jenkins.getURL().toExternalForm() + setValueUrl);
+    httpPost.setEntity(new StringEntity(payload));
+    httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8");
+    httpPost.setHeader(crumb.getName(), crumb.getValue());
+    httpPost.setHeader(HttpHeaders.IF_MATCH, "\"stale\"");
+    CloseableHttpResponse response = client.execute(httpPost);
+    assertThat("Status is 409", response.getStatusLine().getStatusCode(), equalTo(409));
+    assertThat("Current version is sent", response.getFirstHeader(HttpHeaders.ETAG).getValue(),
+        equalTo("\"" + version + "\""));
+    EntityUtils.consume(response.getEntity());
+    assertThat("Value is untouched", build.getAction(ParametersAction.class).getParameter("Foo").getValue(),
+        equalTo((Object) "Foo"));
+
+    httpPost.setHeader(HttpHeaders.IF_MATCH, "\"" + version + "\"");
+    response = client.execute(httpPost);
+    assertThat("Status is 200", response.getStatusLine().getStatusCode(), equalTo(200));
+    String newVersion = ParameterUpdater.version(build.getAction(ParametersAction.class));
+    assertThat("New version is sent", response.getFirstHeader(HttpHeaders.ETAG).getValue(),
+        equalTo("\"" + newVersion + "\""));
+    String responseStr = EntityUtils.toString(response.getEntity(), Charsets.UTF_8);
+    LOGGER.info("testPostCallExpectedVersion Response: " + responseStr);
+    jenkins.assertStringContains(responseStr, "\"version\":\"" + newVersion + "\"");
+
+    // Same version can't be used twice once parameters were changed
+    httpPost.removeHeaders(HttpHeaders.IF_MATCH);
+    httpPost.setEntity(new StringEntity(payload.replace("}], ", "}], \"expectedVersion\":\"" + version + "\", ")));
+    response = client.execute(httpPost);
+    assertThat("Status is 409", response.getStatusLine().getStatusCode(), equalTo(409));
+    EntityUtils.consume(response.getEntity());
+    client.close();
+  }
+
+  @Test
+  public void testMetricsExported() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+    SetParameterValueBuilder builder = new SetParameterValueBuilder(null, "Foo", "Foo2", project.getName(), 1);
+    project.getBuildersList().add(builder);
+
+    jenkins.buildAndAssertSuccess(project);
+
+    JSONObject metrics = JSONObject.fromObject(jenkins.getJSON("plugin/set-parameter-value/api/json")
+        .getContentAsString()).getJSONObject("metrics");
+    LOGGER.info("testMetricsExported metrics: " + metrics);
+    JSONObject step = metrics.getJSONObject("setParameterValue");
+    assertThat("Total is counted", step.getJSONObject("total").getLong("count") > 0, equalTo(true));
+    assertThat("Save is counted", step.getJSONObject("save").getLong("count") > 0, equalTo(true));
+    assertThat("REST percentiles are exported", metrics.getJSONObject("rest").getJSONObject("total").has("p99"),
+        equalTo(true));
+  }
+
+  @Test
+  public void testParameterChangesStreamBoundedAndResumed() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject("streamed");
+    project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("Foo", "Foo")));
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    long lastId = ParameterChangeBus.lastId();
+    // Made while client was away, so it's replayed from history
+    ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue("Foo", "Missed")));
+
+    int streamMaxMillis = ParameterChangeBus.streamMaxMillis;
+    ParameterChangeBus.streamMaxMillis = 1000;
+    CloseableHttpClient client = HttpClients.createDefault();
+    try {
+      HttpGet httpGet = new HttpGet(jenkins.getURL().toExternalForm()
+          + "plugin/set-parameter-value/parameterChanges?prefix=streamed");
+      httpGet.setHeader("Last-Event-ID", String.valueOf(lastId));
+      long start = System.currentTimeMillis();
+      CloseableHttpResponse response = client.execute(httpGet);
+      assertThat("Status is 200", response.getStatusLine().getStatusCode(), equalTo(200));
+      String responseStr = EntityUtils.toString(response.getEntity(), Charsets.UTF_8);
+      LOGGER.info("testParameterChangesStreamBoundedAndResumed Response: " + responseStr);
+      assertThat("Stream ends on its own", System.currentTimeMillis() - start < 10000, equalTo(true));
+      jenkins.assertStringContains(responseStr, "id: " + (lastId + 1) + "\nevent: change\n");
+      jenkins.assertStringContains(responseStr, "\"value\":\"Missed\"");
+
+      // Resuming from event which history no longer has is reported, not silently skipped
+      int historySize = ParameterChangeBus.historySize;
+      ParameterChangeBus.historySize = 1;
+      try {
+        ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue("Foo", "Foo2")));
+        ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue("Foo", "Foo3")));
+      } finally {
+        ParameterChangeBus.historySize = historySize;
+      }
+      response = client.execute(httpGet);
+      responseStr = EntityUtils.toString(response.getEntity(), Charsets.UTF_8);
+      jenkins.assertStringContains(responseStr, "event: dropped");
+    } finally {
+      ParameterChangeBus.streamMaxMillis = streamMaxMillis;
+      client.close();
+    }
+  }
+
+  @Test
+  public void testPostCallRateLimited() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("Foo", "Foo")));
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    String setValueUrl = "plugin/set-parameter-value/setParameterValue";
+    String payload = "{\"parameter\":[{\"name\":\"Foo\", \"value\":\"Foo2\"}], "
+        + "\"job\":\"" + project.getName() + "\", \"run\":\"" + build.getNumber() + "\"}";
+    HttpPost httpPost = new HttpPost(jenkins.getURL().toExternalForm() + setValueUrl);
+    httpPost.setEntity(new StringEntity(payload));
+    httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8");
+    NameValuePair crumb = getCrumbHeaderNvp();
+    httpPost.setHeader(crumb.getName(), crumb.getValue());
+
+    int rateLimit = AdmissionControl.rateLimit;
+    int rateBurst = AdmissionControl.rateBurst;
+    AdmissionControl.rateLimit = 1;
+    AdmissionControl.rateBurst = 1;
+    AdmissionControl.reset();
+    try {
+      CloseableHttpClient client = HttpClients.createDefault();
+      CloseableHttpResponse response = client.execute(httpPost);
+      assertThat("Status is 200", response.getStatusLine().getStatusCode(), equalTo(200));
+      EntityUtils.consume(response.getEntity());
+      response = client.execute(httpPost);
+      assertThat("Status is 429", response.getStatusLine().getStatusCode(), equalTo(429));
+      assertThat("Retry-After is sent", response.getFirstHeader("Retry-After").getValue(), equalTo("1"));
+      EntityUtils.consume(response.getEntity());
+    } finally {
+      AdmissionControl.rateLimit = rateLimit;
+      AdmissionControl.rateBurst = rateBurst;
+      AdmissionControl.reset();
+    }
+
+    JSONObject admission = JSONObject.fromObject(jenkins.getJSON("plugin/set-parameter-value/api/json")
+        .getContentAsString()).getJSONObject("admission");
+    LOGGER.info("testPostCallRateLimited admission: " + admission);
+    assertThat("Rejection is counted", admission.getLong("rateLimited") > 0, equalTo(true));
+    assertThat("Nothing is left in progress", admission.getLong("inFlight"), equalTo(0L));
+    assertThat("Concurrency cap is off by default", admission.getLong("maxConcurrent"), equalTo(0L));
+    assertThat("Streaming cap is off by default", admission.getLong("maxConcurrentStreams"), equalTo(0L));
+  }
+
+  @Test
+  public void testPostCallTypedParameters() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("Foo", "Foo"),
+        new BooleanParameterDefinition("Flag", false, null)));
+
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    String setValueUrl = "plugin/set-parameter-value/setParameterValue";
+    String payload =
+        "{\"parameter\":[{\"_class\":\"hudson.model.BooleanParameterValue\", \"name\":\"Flag\", \"value\":true}, "
+        + "{\"_class\":\"hudson.model.TextParameterValue\", \"name\":\"Foo\", \"value\":\"multi\\nline\"}], "
+        + "\"job\":\"" + project.getName() + "\", "
+        + "\"run\":\"" + build.getNumber() + "\"}";
+
+    HttpPost httpPost = new HttpPost(jenkins.getURL().toExternalForm() + setValueUrl);
+    httpPost.setEntity(new StringEntity(payload));
+    httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8");
+    NameValuePair crumb = getCrumbHeaderNvp();
+    httpPost.setHeader(crumb.getName(), crumb.getValue());
+
+    CloseableHttpClient client = HttpClients.createDefault();
+    CloseableHttpResponse response = client.execute(httpPost);
+    assertThat("Status is 200", response.getStatusLine().getStatusCode(), equalTo(200));
+    EntityUtils.consume(response.getEntity());
+    ParametersAction pa = build.getAction(ParametersAction.class);
+    assertThat("Boolean type is kept", pa.getParameter("Flag") instanceof BooleanParameterValue, equalTo(true));
+    assertThat("Boolean value is set", pa.getParameter("Flag").getValue(), equalTo((Object) Boolean.TRUE));
+    assertThat("Text type is kept", pa.getParameter("Foo") instanceof TextParameterValue, equalTo(true));
+
+    // Class without factory, such as choice sent by older clients, is set as string like before
+    httpPost.setEntity(new StringEntity(payload.replace("hudson.model.TextParameterValue",
+        "hudson.model.ChoiceParameterValue")));
+    response = client.execute(httpPost);
+    assertThat("Status is 200", response.getStatusLine().getStatusCode(), equalTo(200));
+    EntityUtils.consume(response.getEntity());
+    pa = build.getAction(ParametersAction.class);
+    assertThat("String type is used", pa.getParameter("Foo") instanceof StringParameterValue, equalTo(true));
+    assertThat("String value is set", pa.getParameter("Foo").getValue(), equalTo((Object) "multi\nline"));
+    client.close();
+  }
+
+  @Test
+  public void testFanOutPostCall() throws Exception {
+    Folder folder = jenkins.createProject(Folder.class, "team");
+    FreeStyleBuild[][] builds = new FreeStyleBuild[2][3];
+    for (int i = 0; i < builds.length; i++) {
+      FreeStyleProject project = folder.createProject(FreeStyleProject.class, "job" + i);
+      project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("Foo", "Foo")));
+      for (int j = 0; j < builds[i].length; j++) {
+        builds[i][j] = jenkins.buildAndAssertSuccess(project);
+      }
+    }
+
+    String fanOutUrl = "plugin/set-parameter-value/fanOutSetParameterValue";
+    String payload =
+        "{\"folder\":\"team\", \"from\":2, \"result\":\"SUCCESS\", \"concurrency\":2, "
+        + "\"parameter\":[{\"name\":\"Foo\", \"value\":\"Stamp\"}]}";
+
+    HttpPost httpPost = new HttpPost(jenkins.getURL().toExternalForm() + fanOutUrl);
+    httpPost.setEntity(new StringEntity(payload));
+    httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8");
+    NameValuePair crumb = getCrumbHeaderNvp();
+    httpPost.setHeader(crumb.getName(), crumb.getValue());
+
+    CloseableHttpClient client = HttpClients.createDefault();
+    CloseableHttpResponse response = client.execute(httpPost);
+    assertThat("Status is 200", response.getStatusLine().getStatusCode(), equalTo(200));
+    String responseStr = EntityUtils.toString(response.getEntity(), Charsets.UTF_8);
+    LOGGER.info("testFanOutPostCall Response: " + responseStr);
+    String[] lines = responseStr.split("\n");
+    assertThat("Record per job and summary", lines.length, equalTo(3));
+    jenkins.assertStringContains(lines[2], "\"status\":\"done\",\"jobs\":2,\"failed\":0,\"updated\":4");
+    for (FreeStyleBuild[] jobBuilds : builds) {
+      assertThat("Run out of range is untouched",
+          jobBuilds[0].getAction(ParametersAction.class).getParameter("Foo").getValue(), equalTo((Object) "Foo"));
+      for (int j = 1; j < jobBuilds.length; j++) {
+        assertThat("Run in range is updated",
+            jobBuilds[j].getAction(ParametersAction.class).getParameter("Foo").getValue(), equalTo((Object) "Stamp"));
+      }
+    }
+    client.close();
+  }
+
+  @Test
+  public void testFanOutFromTimeStopsWalk() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    project.addProperty(new ParametersDefinitionProperty(new StringParameterDefinition("Foo", "Foo")));
+    FreeStyleBuild[] builds = new FreeStyleBuild[3];
+    for (int j = 0; j < builds.length; j++) {
+      // Keeps start times of runs apart
+      Thread.sleep(10);
+      builds[j] = jenkins.buildAndAssertSuccess(project);
+    }
+
+    FanOutUpdate fanOut = FanOutUpdate.fromJson(JSONObject.fromObject(
+        "{\"fromTime\":" + builds[1].getTimeInMillis() + ", \"parameter\":[{\"name\":\"Foo\", \"value\":\"Stamp\"}]}"));
+    JSONObject progress = fanOut.apply(project);
+    assertThat(progress.getInt("matched"), equalTo(2));
+    assertThat(progress.getInt("updated"), equalTo(2));
+    assertThat("Run started before fromTime is untouched",
+        builds[0].getAction(ParametersAction.class).getParameter("Foo").getValue(), equalTo((Object) "Foo"));
+    assertThat(builds[2].getAction(ParametersAction.class).getParameter("Foo").getValue(),
+        equalTo((Object) "Stamp"));
+  }
+
   @Test
   public void testPostCallAbsentJob() throws Exception {
     FreeStyleProject project = jenkins.createFreeStyleProject();
@@ -160,6 +438,317 @@ public class SetParameterValueBuilderTest {
     client.close();
   }
 
+  @Test
+  public void testPostCallUndefinedParameters() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    String setValueUrl = "plugin/set-parameter-value/setParameterValue";
+    String payload =
+        "{\"parameter\":[{\"name\":\"Bar\", \"value\":\"Bar3\"}, "
+        + "{\"name\":\"Foo\", \"value\":\"Foo3\"}, "
+        + "{\"name\":\"Baz\", \"value\":\"Baz3\"}], "
+        + "\"job\":\"" + project.getName() + "\", "
+        + "\"run\":\"" + build.getNumber() + "\"}";
+
+    HttpPost httpPost = new HttpPost(jenkins.getURL().toExternalForm() + setValueUrl);
+
+    StringEntity entity = new StringEntity(payload);
+    httpPost.setEntity(entity);
+    httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8");
+
+    NameValuePair crumb = getCrumbHeaderNvp();
+    httpPost.setHeader(crumb.getName(), crumb.getValue());
+
+    CloseableHttpClient client = HttpClients.createDefault();
+    CloseableHttpResponse response = client.execute(httpPost);
+    assertThat("Status is 400", response.getStatusLine().getStatusCode(), equalTo(400));
+    String responseStr = EntityUtils.toString(response.getEntity(), Charsets.UTF_8);
+    LOGGER.info("testPostCallUndefinedParameters Response: " + responseStr);
+    jenkins.assertStringContains(responseStr, "\"message\":\""
+        + String.format(Messages.SetParameterValuePlugin_errors_paramsUndefinedForJob(), "Bar', 'Baz",
+            project.getName()) + "\"");
+    client.close();
+  }
+
+  @Test
+  public void testPostCallUtf8Value() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    String setValueUrl = "plugin/set-parameter-value/setParameterValue";
+    String payload =
+        "{\"parameter\":[{\"name\":\"Foo\", \"value\":\"Fōō–ünïcode\"}], "
+        + "\"job\":\"" + project.getName() + "\", "
+        + "\"run\":\"" + build.getNumber() + "\"}";
+
+    HttpPost httpPost = new HttpPost(jenkins.getURL().toExternalForm() + setValueUrl);
+
+    StringEntity entity = new StringEntity(payload, Charsets.UTF_8);
+    entity.setChunked(true);
+    httpPost.setEntity(entity);
+    httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8");
+
+    NameValuePair crumb = getCrumbHeaderNvp();
+    httpPost.setHeader(crumb.getName(), crumb.getValue());
+
+    CloseableHttpClient client = HttpClients.createDefault();
+    CloseableHttpResponse response = client.execute(httpPost);
+    assertThat("Status is 200", response.getStatusLine().getStatusCode(), equalTo(200));
+    assertThat("Value is stored as sent", build.getAction(ParametersAction.class).getParameter("Foo").getValue(),
+        equalTo((Object) "Fōō–ünïcode"));
+    client.close();
+  }
+
+  @Test
+  public void testPostCallTooLarge() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    String setValueUrl = "plugin/set-parameter-value/setParameterValue";
+    String payload =
+        "{\"parameter\":[{\"name\":\"Foo\", \"value\":\"Foo3\"}], "
+        + "\"job\":\"" + project.getName() + "\", "
+        + "\"run\":\"" + build.getNumber() + "\"}";
+
+    HttpPost httpPost = new HttpPost(jenkins.getURL().toExternalForm() + setValueUrl);
+
+    StringEntity entity = new StringEntity(payload);
+    httpPost.setEntity(entity);
+    httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8");
+
+    NameValuePair crumb = getCrumbHeaderNvp();
+    httpPost.setHeader(crumb.getName(), crumb.getValue());
+
+    int maxBodySize = RequestBodyReader.maxBodySize;
+    RequestBodyReader.maxBodySize = 16;
+    CloseableHttpClient client = HttpClients.createDefault();
+    try {
+      CloseableHttpResponse response = client.execute(httpPost);
+      assertThat("Status is 413", response.getStatusLine().getStatusCode(), equalTo(413));
+      String responseStr = EntityUtils.toString(response.getEntity(), Charsets.UTF_8);
+      jenkins.assertStringContains(responseStr,
+          String.format(Messages.SetParameterValuePlugin_errors_bodyTooLarge(), 16));
+    } finally {
+      RequestBodyReader.maxBodySize = maxBodySize;
+      client.close();
+    }
+  }
+
+  @Test
+  public void testAsyncPostCall() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    String setValueUrl = "plugin/set-parameter-value/setParameterValueAsync";
+    String payload =
+        "{\"parameter\":[{\"name\":\"Foo\", \"value\":\"Foo3\"}], "
+        + "\"job\":\"" + project.getName() + "\", "
+        + "\"run\":\"" + build.getNumber() + "\"}";
+
+    HttpPost httpPost = new HttpPost(jenkins.getURL().toExternalForm() + setValueUrl);
+
+    StringEntity entity = new StringEntity(payload);
+    httpPost.setEntity(entity);
+    httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8");
+
+    NameValuePair crumb = getCrumbHeaderNvp();
+    httpPost.setHeader(crumb.getName(), crumb.getValue());
+
+    CloseableHttpClient client = HttpClients.createDefault();
+    CloseableHttpResponse response = client.execute(httpPost);
+    assertThat("Status is 202", response.getStatusLine().getStatusCode(), equalTo(202));
+    String responseStr = EntityUtils.toString(response.getEntity(), Charsets.UTF_8);
+    LOGGER.info("testAsyncPostCall Response: " + responseStr);
+    String id = JSONObject.fromObject(responseStr).getJSONObject("data").getString("id");
+    client.close();
+
+    String state = null;
+    for (int i = 0; i < 100 && !"DURABLE".equals(state); i++) {
+      Thread.sleep(100);
+      String statusStr = jenkins.getJSON("plugin/set-parameter-value/setParameterValueStatus?id=" + id)
+          .getContentAsString();
+      state = JSONObject.fromObject(statusStr).getJSONObject("data").getString("state");
+    }
+    assertThat("Update is durable", state, equalTo("DURABLE"));
+    assertThat("Value is stored", build.getAction(ParametersAction.class).getParameter("Foo").getValue(),
+        equalTo((Object) "Foo3"));
+  }
+
+  @Test
+  public void testAsyncPostCallStaleVersion() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+    String version = ParameterUpdater.version(build.getAction(ParametersAction.class));
+
+    String setValueUrl = "plugin/set-parameter-value/setParameterValueAsync";
+    String payload =
+        "{\"parameter\":[{\"name\":\"Foo\", \"value\":\"Foo3\"}], "
+        + "\"expectedVersion\":\"stale\", "
+        + "\"job\":\"" + project.getName() + "\", "
+        + "\"run\":\"" + build.getNumber() + "\"}";
+
+    HttpPost httpPost = new HttpPost(jenkins.getURL().toExternalForm() + setValueUrl);
+    httpPost.setEntity(new StringEntity(payload));
+    httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8");
+    NameValuePair crumb = getCrumbHeaderNvp();
+    httpPost.setHeader(crumb.getName(), crumb.getValue());
+
+    CloseableHttpClient client = HttpClients.createDefault();
+    CloseableHttpResponse response = client.execute(httpPost);
+    assertThat("Status is 202", response.getStatusLine().getStatusCode(), equalTo(202));
+    String responseStr = EntityUtils.toString(response.getEntity(), Charsets.UTF_8);
+    String id = JSONObject.fromObject(responseStr).getJSONObject("data").getString("id");
+    client.close();
+
+    JSONObject ticket = null;
+    for (int i = 0; i < 100; i++) {
+      Thread.sleep(100);
+      String statusStr = jenkins.getJSON("plugin/set-parameter-value/setParameterValueStatus?id=" + id)
+          .getContentAsString();
+      ticket = JSONObject.fromObject(statusStr).getJSONObject("data");
+      if ("FAILED".equals(ticket.getString("state")) || "DURABLE".equals(ticket.getString("state"))) {
+        break;
+      }
+    }
+    LOGGER.info("testAsyncPostCallStaleVersion ticket: " + ticket);
+    assertThat("Update failed", ticket.getString("state"), equalTo("FAILED"));
+    assertThat("Conflict is reported", ticket.getInt("status"), equalTo(409));
+    assertThat("Current version is reported", ticket.getString("version"), equalTo(version));
+    assertThat("Value is untouched", build.getAction(ParametersAction.class).getParameter("Foo").getValue(),
+        equalTo((Object) "Foo"));
+  }
+
+  @Test
+  public void testBulkPostCall() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef1 = new StringParameterDefinition("Foo", "Foo");
+    ParameterDefinition paramDef2 = new StringParameterDefinition("Bar", "Bar");
+    project.addProperty(new ParametersDefinitionProperty(paramDef1, paramDef2));
+
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    String setValueUrl = "plugin/set-parameter-value/bulkSetParameterValue";
+    String payload =
+        "{\"parameter\":[{\"name\":\"Foo\", \"value\":\"Foo3\"}], "
+        + "\"job\":\"" + project.getName() + "\", \"run\":\"" + build.getNumber() + "\"}\n"
+        + "{\"parameter\":[{\"name\":\"Bar\", \"value\":\"Bar3\"}], "
+        + "\"job\":\"incorrect_job\", \"run\":\"" + build.getNumber() + "\"}\n"
+        + "{\"parameter\":[{\"name\":\"Bar\", \"value\":\"Bar3\"}], "
+        + "\"job\":\"" + project.getName() + "\", \"run\":\"" + build.getNumber() + "\"}\n"
+        + "{\"parameter\":[{\"name\":\"Foo\", \"value\":\"Foo3\"}], "
+        + "\"job\":\"" + project.getName() + "\", \"run\":\"" + build.getNumber() + "\"}\n";
+
+    HttpPost httpPost = new HttpPost(jenkins.getURL().toExternalForm() + setValueUrl);
+
+    StringEntity entity = new StringEntity(payload);
+    httpPost.setEntity(entity);
+    httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/x-ndjson; charset=UTF-8");
+
+    NameValuePair crumb = getCrumbHeaderNvp();
+    httpPost.setHeader(crumb.getName(), crumb.getValue());
+
+    CloseableHttpClient client = HttpClients.createDefault();
+    CloseableHttpResponse response = client.execute(httpPost);
+    assertThat("Status is 200", response.getStatusLine().getStatusCode(), equalTo(200));
+    String responseStr = EntityUtils.toString(response.getEntity(), Charsets.UTF_8);
+    LOGGER.info("testBulkPostCall Response: " + responseStr);
+    jenkins.assertStringContains(responseStr, "{\"index\":0,\"job\":\"" + project.getName() + "\",\"run\":\""
+        + build.getNumber() + "\",\"status\":\"ok\",\"changed\":1}");
+    jenkins.assertStringContains(responseStr, "{\"index\":2,\"job\":\"" + project.getName() + "\",\"run\":\""
+        + build.getNumber() + "\",\"status\":\"ok\",\"changed\":1}");
+    // Record repeating value written by earlier one of same batch changes nothing
+    jenkins.assertStringContains(responseStr, "{\"index\":3,\"job\":\"" + project.getName() + "\",\"run\":\""
+        + build.getNumber() + "\",\"status\":\"ok\",\"changed\":0}");
+    jenkins.assertStringContains(responseStr, "{\"index\":1,\"job\":\"incorrect_job\"");
+    jenkins.assertStringContains(responseStr, String.format(Messages.SetParameterValuePlugin_errors_jobNotFound(),
+        "incorrect_job"));
+    String buildUrl = "job/" + project.getName() + "/" + build.getNumber() + "/api/json";
+    String buildJson = jenkins.getJSON(buildUrl).getContentAsString();
+    jenkins.assertStringContains(buildJson, "\"name\":\"Foo\",\"value\":\"Foo3\"");
+    jenkins.assertStringContains(buildJson, "\"name\":\"Bar\",\"value\":\"Bar3\"");
+    client.close();
+  }
+
+  @Test
+  public void testGetParameterValuesPostCall() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef1 = new StringParameterDefinition("Foo", "Foo1");
+    ParameterDefinition paramDef2 = new StringParameterDefinition("Bar", "Bar1");
+    project.addProperty(new ParametersDefinitionProperty(paramDef1, paramDef2));
+
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+
+    String getValuesUrl = "plugin/set-parameter-value/getParameterValues";
+    String payload =
+        "{\"runs\":[{\"job\":\"" + project.getName() + "\", \"run\":\"" + build.getNumber() + "\", "
+        + "\"names\":[\"Bar\", \"Baz\"]}, "
+        + "{\"job\":\"" + project.getName() + "\", \"run\":\"" + build.getNumber() + "\"}]}";
+
+    HttpPost httpPost = new HttpPost(jenkins.getURL().toExternalForm() + getValuesUrl);
+
+    StringEntity entity = new StringEntity(payload);
+    httpPost.setEntity(entity);
+    httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8");
+
+    NameValuePair crumb = getCrumbHeaderNvp();
+    httpPost.setHeader(crumb.getName(), crumb.getValue());
+
+    CloseableHttpClient client = HttpClients.createDefault();
+    CloseableHttpResponse response = client.execute(httpPost);
+    assertThat("Status is 200", response.getStatusLine().getStatusCode(), equalTo(200));
+    String responseStr = EntityUtils.toString(response.getEntity(), Charsets.UTF_8);
+    LOGGER.info("testGetParameterValuesPostCall Response: " + responseStr);
+    jenkins.assertStringContains(responseStr, "\"status\":\"ok\",\"values\":{\"Bar\":\"Bar1\"},"
+        + "\"missing\":[\"Baz\"]}");
+    jenkins.assertStringContains(responseStr, "\"values\":{\"Foo\":\"Foo1\",\"Bar\":\"Bar1\"}}");
+    client.close();
+  }
+
+  @Test
+  public void testGetParameterValueHistoryCall() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+    for (int i = 1; i <= 3; i++) {
+      jenkins.assertBuildStatusSuccess(project.scheduleBuild2(0,
+          new ParametersAction(new StringParameterValue("Foo", "Foo" + i))));
+    }
+
+    String historyUrl = "plugin/set-parameter-value/getParameterValueHistory?job=" + project.getName()
+        + "&name=Foo&last=2";
+    String responseStr = jenkins.getJSON(historyUrl).getContentAsString();
+    LOGGER.info("testGetParameterValueHistoryCall Response: " + responseStr);
+    jenkins.assertStringContains(responseStr,
+        "\"values\":[{\"run\":3,\"value\":\"Foo3\"},{\"run\":2,\"value\":\"Foo2\"}],\"truncated\":false");
+
+    // Range cut by plugin's cap is marked, with run to continue from
+    int maxRuns = ParameterHistory.maxRuns;
+    ParameterHistory.maxRuns = 2;
+    try {
+      responseStr = jenkins.getJSON("plugin/set-parameter-value/getParameterValueHistory?job=" + project.getName()
+          + "&name=Foo").getContentAsString();
+    } finally {
+      ParameterHistory.maxRuns = maxRuns;
+    }
+    jenkins.assertStringContains(responseStr, "\"truncated\":true,\"next\":1");
+  }
+
   @Test
   public void testPostCallAnonymousFailureUnderEffectiveSecurity() throws Exception {
     HudsonPrivateSecurityRealm realm = new HudsonPrivateSecurityRealm(false, false, null);
@@ -311,9 +900,35 @@ public class SetParameterValueBuilderTest {
     jenkins.assertLogContains(expectedString, failedBuild);
   }
 
+  @Test
+  public void testWriteBehindSave() throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject();
+    ParameterDefinition paramDef = new StringParameterDefinition("Foo", "Foo");
+    project.addProperty(new ParametersDefinitionProperty(paramDef));
+
+    FreeStyleBuild build = jenkins.buildAndAssertSuccess(project);
+    File buildXml = new File(build.getRootDir(), "build.xml");
+
+    int coalesceMillis = SaveScheduler.coalesceMillis;
+    SaveScheduler.coalesceMillis = 60000;
+    try {
+      ParameterUpdater.update(build, Collections.singletonList(new StringParameterValue("Foo", "Foo5")));
+      // In-memory run sees new value right away, while disk still has old one
+      assertThat("Value is visible", build.getAction(ParametersAction.class).getParameter("Foo").getValue(),
+          equalTo((Object) "Foo5"));
+      assertThat("Save is deferred", FileUtils.readFileToString(buildXml, Charsets.UTF_8).contains("Foo5"),
+          equalTo(false));
+      SaveScheduler.flushAll();
+      assertThat("Save is flushed", FileUtils.readFileToString(buildXml, Charsets.UTF_8).contains("Foo5"),
+          equalTo(true));
+    } finally {
+      SaveScheduler.coalesceMillis = coalesceMillis;
+    }
+  }
+
   private NameValuePair getCrumbHeaderNvp() {
     return new NameValuePair(jenkins.jenkins.getCrumbIssuer().getDescriptor().getCrumbRequestField(),
                     jenkins.jenkins.getCrumbIssuer().getCrumb(null));
   }
 
-}
\ No newline at end of file
+}
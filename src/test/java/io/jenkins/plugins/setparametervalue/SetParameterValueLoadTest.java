@@ -0,0 +1,214 @@
+package io.jenkins.plugins.setparametervalue;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import com.gargoylesoftware.htmlunit.util.NameValuePair;
+
+import hudson.model.FreeStyleBuild;
+import hudson.model.FreeStyleProject;
+import hudson.model.Label;
+import hudson.model.ParameterDefinition;
+import hudson.model.ParametersAction;
+import hudson.model.ParametersDefinitionProperty;
+import hudson.model.StringParameterDefinition;
+import io.jenkins.plugins.setparametervalue.OperationMetrics.EntryPoint;
+import io.jenkins.plugins.setparametervalue.OperationMetrics.Phase;
+
+/**
+ * Load tests driving REST calls and pipeline steps from many threads against many runs.
+ * Excluded from regular build, run with {@code mvn test -P load-test}, sizes could be changed
+ * with loadTest.runs, loadTest.threads and loadTest.requests system properties.
+ *
+ * @author Andrejus Chaliapinas
+ *
+ */
+public class SetParameterValueLoadTest {
+
+  private static Logger LOGGER = LogManager.getLogger();
+
+  @Rule
+  public JenkinsRule jenkins = new JenkinsRule();
+
+  final int runs = Integer.getInteger("loadTest.runs", 2000);
+  final int threads = Integer.getInteger("loadTest.threads", 8);
+  final int requests = Integer.getInteger("loadTest.requests", 500);
+
+  @Test
+  public void testRestLoad() throws Exception {
+    FreeStyleProject project = createProject("load");
+    final List<FreeStyleBuild> builds = new ArrayList<>(runs);
+    for (int i = 0; i < runs; i++) {
+      builds.add(jenkins.buildAndAssertSuccess(project));
+    }
+    LOGGER.info("testRestLoad created runs: " + runs);
+
+    final String setValueUrl = jenkins.getURL().toExternalForm() + "plugin/set-parameter-value/setParameterValue";
+    final NameValuePair crumb = getCrumbHeaderNvp();
+    PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+    connections.setMaxTotal(threads);
+    connections.setDefaultMaxPerRoute(threads);
+    final CloseableHttpClient client = HttpClients.custom().setConnectionManager(connections).build();
+
+    // Each thread owns one parameter and remembers last value it wrote into each run
+    final String[][] lastValues = new String[threads][runs];
+    final long[][] latencies = new long[threads][requests];
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final CountDownLatch start = new CountDownLatch(1);
+    List<Future<?>> futures = new ArrayList<>();
+    for (int i = 0; i < threads; i++) {
+      final int t = i;
+      futures.add(executor.submit(() -> {
+        start.await();
+        for (int k = 0; k < requests; k++) {
+          int r = ThreadLocalRandom.current().nextInt(runs);
+          String value = t + "-" + k;
+          String payload = "{\"parameter\":[{\"name\":\"T" + t + "\", \"value\":\"" + value + "\"}], "
+              + "\"job\":\"load\", \"run\":\"" + builds.get(r).getNumber() + "\"}";
+          HttpPost httpPost = new HttpPost(setValueUrl);
+          httpPost.setEntity(new StringEntity(payload));
+          httpPost.setHeader(HttpHeaders.CONTENT_TYPE, "application/json; charset=UTF-8");
+          httpPost.setHeader(crumb.getName(), crumb.getValue());
+          long begin = System.nanoTime();
+          try (CloseableHttpResponse response = client.execute(httpPost)) {
+            EntityUtils.consume(response.getEntity());
+            assertThat("Status is 200", response.getStatusLine().getStatusCode(), equalTo(200));
+          }
+          latencies[t][k] = System.nanoTime() - begin;
+          lastValues[t][r] = value;
+        }
+        return null;
+      }));
+    }
+    long begin = System.nanoTime();
+    start.countDown();
+    for (Future<?> f : futures) {
+      f.get();
+    }
+    long elapsed = System.nanoTime() - begin;
+    executor.shutdown();
+    client.close();
+
+    report("testRestLoad", threads * requests, elapsed, latencies);
+    for (int r = 0; r < runs; r++) {
+      ParametersAction pa = builds.get(r).getAction(ParametersAction.class);
+      for (int t = 0; t < threads; t++) {
+        String expected = lastValues[t][r] != null ? lastValues[t][r] : "initial";
+        assertThat("No lost update of T" + t + " in run " + builds.get(r).getNumber(),
+            pa.getParameter("T" + t).getValue(), equalTo((Object) expected));
+      }
+    }
+  }
+
+  @Test
+  public void testPipelineStepsLoad() throws Exception {
+    FreeStyleProject project = createProject("load");
+    FreeStyleBuild target = null;
+    for (int i = 0; i < runs; i++) {
+      target = jenkins.buildAndAssertSuccess(project);
+    }
+    jenkins.createOnlineSlave(Label.get("load-agent"));
+
+    // Parallel branches, each one keeps setting and reading back own parameter of same run
+    String pipelineScript
+            = "def branches = [:]\n"
+            + "for (int i = 0; i < " + threads + "; i++) {\n"
+            + "  def t = i\n"
+            + "  branches['b' + t] = {\n"
+            + "    for (int k = 0; k < " + requests + "; k++) {\n"
+            + "      setParameterValue(name: 'T' + t, value: '' + t + '-' + k, job: 'load', run: "
+            +          target.getNumber() + ")\n"
+            + "      def valueList = new java.util.ArrayList(new java.util.HashSet())\n"
+            + "      getParameterValue(name: 'T' + t, job: 'load', run: " + target.getNumber()
+            +          ", list: valueList)\n"
+            + "    }\n"
+            + "  }\n"
+            + "}\n"
+            + "node('load-agent') {\n"
+            + "  parallel branches\n"
+            + "}";
+    WorkflowJob jobObj = jenkins.createProject(WorkflowJob.class, "load-pipeline");
+    jobObj.setDefinition(new CpsFlowDefinition(pipelineScript, true));
+    long begin = System.nanoTime();
+    WorkflowRun completedBuild = jenkins.assertBuildStatusSuccess(jobObj.scheduleBuild2(0));
+    long elapsed = System.nanoTime() - begin;
+
+    LOGGER.info(String.format("testPipelineStepsLoad: %d steps in %d ms, %.1f steps/s", 2 * threads * requests,
+        TimeUnit.NANOSECONDS.toMillis(elapsed), 2.0 * threads * requests * TimeUnit.SECONDS.toNanos(1) / elapsed));
+    Map<String, Long> setStats = OperationMetrics.get(EntryPoint.SET_STEP, Phase.TOTAL).getStatistics();
+    Map<String, Long> getStats = OperationMetrics.get(EntryPoint.GET_STEP, Phase.TOTAL).getStatistics();
+    LOGGER.info("testPipelineStepsLoad setParameterValue latency, microseconds: " + setStats);
+    LOGGER.info("testPipelineStepsLoad getParameterValue latency, microseconds: " + getStats);
+    jenkins.assertLogNotContains("ERROR:", completedBuild);
+
+    ParametersAction pa = target.getAction(ParametersAction.class);
+    for (int t = 0; t < threads; t++) {
+      assertThat("No lost update of T" + t, pa.getParameter("T" + t).getValue(),
+          equalTo((Object) (t + "-" + (requests - 1))));
+    }
+  }
+
+  private FreeStyleProject createProject(String name) throws Exception {
+    FreeStyleProject project = jenkins.createFreeStyleProject(name);
+    List<ParameterDefinition> paramDefs = new ArrayList<>(threads);
+    for (int t = 0; t < threads; t++) {
+      paramDefs.add(new StringParameterDefinition("T" + t, "initial"));
+    }
+    project.addProperty(new ParametersDefinitionProperty(paramDefs));
+    return project;
+  }
+
+  private static void report(String test, int count, long elapsedNanos, long[][] latencies) {
+    long[] all = new long[count];
+    int i = 0;
+    for (long[] perThread : latencies) {
+      for (long latency : perThread) {
+        all[i++] = latency;
+      }
+    }
+    Arrays.sort(all);
+    LOGGER.info(String.format("%s: %d requests in %d ms, %.1f requests/s, latency ms p50 %.2f, p95 %.2f, p99 %.2f, "
+        + "max %.2f", test, count, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+        (double) count * TimeUnit.SECONDS.toNanos(1) / elapsedNanos, percentile(all, 0.50),
+        percentile(all, 0.95), percentile(all, 0.99), all[all.length - 1] / 1e6));
+  }
+
+  private static double percentile(long[] sorted, double quantile) {
+    int index = (int) Math.ceil(quantile * sorted.length) - 1;
+    return sorted[Math.max(0, index)] / 1e6;
+  }
+
+  private NameValuePair getCrumbHeaderNvp() {
+    return new NameValuePair(jenkins.jenkins.getCrumbIssuer().getDescriptor().getCrumbRequestField(),
+                    jenkins.jenkins.getCrumbIssuer().getCrumb(null));
+  }
+
+}